@@ -0,0 +1,22 @@
+package com.pulse.reactive;
+
+import com.pulse.api.jwt.JwtUtil;
+import com.pulse.api.jwt.VerifiedTokenCache;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Read-only lookups of pulse-api-secure users on WebFlux and R2DBC. Writes stay on the servlet application; both
+ * share the database, the DTOs and the JWT secret. Only the JWT components are imported from com.pulse.api, so none
+ * of its servlet or JPA beans are picked up.
+ */
+@SpringBootApplication
+@Import({JwtUtil.class, VerifiedTokenCache.class})
+public class PulseReactiveApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(PulseReactiveApplication.class, args);
+	}
+
+}
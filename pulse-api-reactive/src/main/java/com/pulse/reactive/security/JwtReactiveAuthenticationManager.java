@@ -0,0 +1,83 @@
+package com.pulse.reactive.security;
+
+import com.pulse.api.enums.RoleAuthorities;
+import com.pulse.api.jwt.VerifiedToken;
+import com.pulse.api.jwt.VerifiedTokenCache;
+import com.pulse.reactive.user.ReactiveUserRepo;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.CredentialsExpiredException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Authenticates the bearer token carried as the credentials of the incoming {@link Authentication}, the same way the
+ * servlet application's stateless mode does: signature and expiry through {@link VerifiedTokenCache}, authorities
+ * from the signed roles, and a non-blocking token version lookup instead of loading the user.
+ */
+@Component
+public class JwtReactiveAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtReactiveAuthenticationManager.class);
+
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final ReactiveUserRepo userRepo;
+    private final boolean versionCheck;
+
+    @Autowired
+    public JwtReactiveAuthenticationManager(VerifiedTokenCache verifiedTokenCache, ReactiveUserRepo userRepo,
+                                            @Value("${jwt.version-check:true}") boolean versionCheck) {
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.userRepo = userRepo;
+        this.versionCheck = versionCheck;
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        VerifiedToken token;
+        try {
+            // HMAC verification is short CPU work and usually a cache hit, so it runs on the event loop
+            token = verifiedTokenCache.verify((String) authentication.getCredentials());
+        } catch (ExpiredJwtException e) {
+            logger.warn("JWT Token has expired");
+            return Mono.error(new CredentialsExpiredException("JWT Token has expired", e));
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.warn("Unable to get JWT Token");
+            return Mono.error(new BadCredentialsException("Invalid JWT Token", e));
+        }
+
+        if (!versionCheck) {
+            return Mono.just(authenticated(token));
+        }
+        // A deleted user has no version row, so their tokens are rejected as well
+        return userRepo.findTokenVersionByUsername(token.getSubject())
+                .filter(version -> version == token.getTokenVersion())
+                .map(version -> authenticated(token))
+                .switchIfEmpty(Mono.defer(() -> {
+                    logger.warn("JWT Token has been revoked");
+                    return Mono.error(new BadCredentialsException("JWT Token has been revoked"));
+                }));
+    }
+
+    private static Authentication authenticated(VerifiedToken token) {
+        List<GrantedAuthority> authorities = RoleAuthorities.forMask(token.getRoleMask());
+        UserDetails principal = User.withUsername(token.getSubject())
+                .password("")
+                .authorities(authorities)
+                .build();
+        return new UsernamePasswordAuthenticationToken(principal, null, authorities);
+    }
+}
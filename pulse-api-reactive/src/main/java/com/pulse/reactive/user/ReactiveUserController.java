@@ -0,0 +1,84 @@
+package com.pulse.reactive.user;
+
+import com.pulse.api.controller.UserETags;
+import com.pulse.api.dto.UserResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The user lookups of {@code com.pulse.api.controller.UserController}, with the same paths, bodies, status codes and
+ * ETags. WebFlux answers a matching If-None-Match with 304 and a failed If-Match with 412, as Spring MVC does there.
+ */
+@RestController
+@RequestMapping("/api/users")
+public class ReactiveUserController {
+
+    private final ReactiveUserRepo userRepo;
+
+    @Autowired
+    public ReactiveUserController(ReactiveUserRepo userRepo) {
+        this.userRepo = userRepo;
+    }
+
+    // Get user by id
+    @GetMapping("/id/{id}")
+    public Mono<ResponseEntity<Map<String, Object>>> getUserById(@PathVariable("id") Long id, ServerWebExchange exchange) {
+        Mono<ResponseEntity<Map<String, Object>>> lookup = Mono.defer(() -> respond(userRepo.findViewById(id),
+                "User with id " + id + " fetched successfully",
+                "User with id " + id + " not found"));
+        if (exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH) == null) {
+            return lookup;
+        }
+
+        // A polling client revalidating its copy gets a 304 decided from the version alone, without loading the user
+        return userRepo.findVersionById(id)
+                .map(version -> UserETags.of(id, version))
+                .filter(exchange::checkNotModified)
+                .map(eTag -> ResponseEntity.status(exchange.getResponse().getStatusCode()).eTag(eTag).<Map<String, Object>>build())
+                .switchIfEmpty(lookup);
+    }
+
+    // Get user by email
+    @GetMapping("/email/{email}")
+    public Mono<ResponseEntity<Map<String, Object>>> getUserByEmail(@PathVariable("email") String email) {
+        return respond(userRepo.findViewByEmail(email),
+                "User with email '" + email + "' fetched successfully",
+                "User not found");
+    }
+
+    // Get user by username
+    @GetMapping("/username/{username}")
+    public Mono<ResponseEntity<Map<String, Object>>> getUserByUsername(@PathVariable("username") String username) {
+        return respond(userRepo.findViewByUsername(username),
+                "User with username '" + username + "' fetched successfully",
+                "User not found with username " + username);
+    }
+
+    private static Mono<ResponseEntity<Map<String, Object>>> respond(Mono<UserResponse> user, String found, String notFound) {
+        return user
+                .map(response -> {
+                    Map<String, Object> responseBody = new HashMap<>();
+                    responseBody.put("message", found);
+                    responseBody.put("user", response);
+                    return ResponseEntity.ok().eTag(UserETags.of(response)).body(responseBody);
+                })
+                .defaultIfEmpty(notFound(notFound));
+    }
+
+    private static ResponseEntity<Map<String, Object>> notFound(String message) {
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("message", message);
+        return new ResponseEntity<>(responseBody, HttpStatus.NOT_FOUND);
+    }
+}
@@ -0,0 +1,97 @@
+package com.pulse.reactive.user;
+
+import com.pulse.api.dto.UserResponse;
+import com.pulse.api.enums.Gender;
+import com.pulse.api.enums.RelationshipStatus;
+import com.pulse.api.enums.RoleName;
+import com.pulse.api.storage.ProfilePictureUrls;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking counterpart of the UserView queries in {@code com.pulse.api.repo.UserRepo}: the same columns (never the
+ * password hash), mapped straight to {@link UserResponse}.
+ */
+@Repository
+public class ReactiveUserRepo {
+
+    // Columns of the UserView projection, in the naming of the schema pulse-api-secure maintains
+    static final String USER_VIEW_SELECT = "select id, first_name, middle_name, last_name, username, email, phone, country, "
+            + "gender, relationship_status, profile_picture, bio, role_mask, created_at, updated_at, version from users ";
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public ReactiveUserRepo(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<UserResponse> findViewById(Long id) {
+        return databaseClient.sql(USER_VIEW_SELECT + "where id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepo::toResponse)
+                .one();
+    }
+
+    public Mono<UserResponse> findViewByEmail(String email) {
+        return databaseClient.sql(USER_VIEW_SELECT + "where email = :email")
+                .bind("email", email)
+                .map(ReactiveUserRepo::toResponse)
+                .one();
+    }
+
+    public Mono<UserResponse> findViewByUsername(String username) {
+        return databaseClient.sql(USER_VIEW_SELECT + "where username = :username")
+                .bind("username", username)
+                .map(ReactiveUserRepo::toResponse)
+                .one();
+    }
+
+    // Enough to revalidate an ETag without reading the rest of the row; empty if there is no such user
+    public Mono<Long> findVersionById(Long id) {
+        return databaseClient.sql("select version from users where id = :id")
+                .bind("id", id)
+                .map(row -> row.get("version", Long.class))
+                .one();
+    }
+
+    // Empty for a user that no longer exists
+    public Mono<Integer> findTokenVersionByUsername(String username) {
+        return databaseClient.sql("select token_version from users where username = :username")
+                .bind("username", username)
+                .map(row -> row.get("token_version", Integer.class))
+                .one();
+    }
+
+    static UserResponse toResponse(Readable row) {
+        String profilePicture = row.get("profile_picture", String.class);
+        Integer roleMask = row.get("role_mask", Integer.class);
+        return new UserResponse(
+                row.get("id", Long.class),
+                row.get("first_name", String.class),
+                row.get("middle_name", String.class),
+                row.get("last_name", String.class),
+                row.get("username", String.class),
+                row.get("email", String.class),
+                row.get("phone", String.class),
+                row.get("country", String.class),
+                enumOf(Gender.class, row.get("gender", String.class)),
+                enumOf(RelationshipStatus.class, row.get("relationship_status", String.class)),
+                ProfilePictureUrls.original(profilePicture),
+                ProfilePictureUrls.variants(profilePicture),
+                row.get("bio", String.class),
+                RoleName.fromMask(roleMask == null ? 0 : roleMask),
+                row.get("created_at", LocalDateTime.class),
+                row.get("updated_at", LocalDateTime.class),
+                row.get("version", Long.class));
+    }
+
+    private static <E extends Enum<E>> E enumOf(Class<E> type, String name) {
+        return name == null ? null : Enum.valueOf(type, name);
+    }
+}
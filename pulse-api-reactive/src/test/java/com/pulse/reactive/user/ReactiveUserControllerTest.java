@@ -0,0 +1,77 @@
+package com.pulse.reactive.user;
+
+import com.pulse.api.dto.UserResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReactiveUserControllerTest {
+
+    @InjectMocks
+    private ReactiveUserController userController;
+
+    @Mock
+    private ReactiveUserRepo userRepo;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void getUserById_Success() {
+        UserResponse user = new UserResponse(1L, "John", null, "Doe", "johndoe", "john@example.com", null, null,
+                null, null, null, null, null, Set.of(), null, null, 3L);
+        when(userRepo.findViewById(1L)).thenReturn(Mono.just(user));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/id/1"));
+
+        ResponseEntity<Map<String, Object>> response = userController.getUserById(1L, exchange).block();
+
+        assertNotNull(response);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("User with id 1 fetched successfully", response.getBody().get("message"));
+        assertSame(user, response.getBody().get("user"));
+        assertEquals("\"1-3\"", response.getHeaders().getETag());
+        verify(userRepo, never()).findVersionById(any());
+    }
+
+    @Test
+    void getUserById_NotModifiedIsDecidedFromTheVersion() {
+        when(userRepo.findVersionById(1L)).thenReturn(Mono.just(3L));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/id/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1-3\""));
+
+        ResponseEntity<Map<String, Object>> response = userController.getUserById(1L, exchange).block();
+
+        assertNotNull(response);
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("\"1-3\"", response.getHeaders().getETag());
+        verify(userRepo, never()).findViewById(any());
+    }
+
+    @Test
+    void getUserByUsername_NotFound() {
+        when(userRepo.findViewByUsername("ghost")).thenReturn(Mono.empty());
+
+        ResponseEntity<Map<String, Object>> response = userController.getUserByUsername("ghost").block();
+
+        assertNotNull(response);
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertEquals("User not found with username ghost", response.getBody().get("message"));
+        assertFalse(response.getBody().containsKey("user"));
+    }
+}
@@ -0,0 +1,68 @@
+package com.pulse.api.cache;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * {@value #THREADS} request threads looking up {@value #HOT_KEYS} hot users, each lookup a {@value #QUERY_MICROS} µs
+ * query on one of {@value #CONNECTIONS} pooled connections, with and without {@link SingleFlight}. Without
+ * coalescing the queries queue for connections, which is where the tail latency comes from.
+ * Compare the p0.99 sample times, and the "queries" counter, which counts queries actually run.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(UserLookupCoalescingBenchmark.THREADS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserLookupCoalescingBenchmark {
+
+    static final int THREADS = 32;
+    private static final int HOT_KEYS = 4;
+    private static final int CONNECTIONS = 10;
+    private static final long QUERY_MICROS = 500;
+
+    @Param({"false", "true"})
+    public boolean coalescing;
+
+    private SingleFlight<Integer, String> flight;
+    private Semaphore connections;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Queries {
+        public long queries;
+    }
+
+    @Setup
+    public void setUp() {
+        flight = new SingleFlight<>();
+        connections = new Semaphore(CONNECTIONS, true);
+    }
+
+    @Benchmark
+    public String lookup(Queries counter) {
+        int key = ThreadLocalRandom.current().nextInt(HOT_KEYS);
+        Supplier<String> query = () -> {
+            counter.queries++;
+            return query(key);
+        };
+        return coalescing ? flight.execute(key, query) : query.get();
+    }
+
+    private String query(int key) {
+        connections.acquireUninterruptibly();
+        try {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(QUERY_MICROS));
+            return "user" + key;
+        } finally {
+            connections.release();
+        }
+    }
+}
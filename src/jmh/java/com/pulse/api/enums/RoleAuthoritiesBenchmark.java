@@ -0,0 +1,44 @@
+package com.pulse.api.enums;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Authority building per authenticated request: the former stream over the token's role names versus the
+ * {@link RoleAuthorities} lookup. Run with the gc profiler (enabled by the jmh profile) and compare
+ * gc.alloc.rate.norm, which should be 0 B/op for {@link #registryLookup()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoleAuthoritiesBenchmark {
+
+    private List<String> roles;
+    private int roleMask;
+
+    @Setup
+    public void setUp() {
+        roles = List.of(RoleName.ADMIN.authority(), RoleName.NORMAL.authority());
+        roleMask = RoleName.maskOfAuthorities(roles);
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> streamPerRequest() {
+        return roles.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> registryLookup() {
+        return RoleAuthorities.forMask(roleMask);
+    }
+}
@@ -0,0 +1,95 @@
+package com.pulse.api.jwt;
+
+import com.pulse.api.cache.CoalescingUserLookups;
+import com.pulse.api.enums.RoleName;
+import com.pulse.api.model.User;
+import com.pulse.api.repo.InMemoryUserStore;
+import com.pulse.api.security.UnknownIdentifierCache;
+import com.pulse.api.utils.CustomCustomerDetailsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One authenticated request through {@link JwtRequestFilter#doFilterInternal}, with mock servlet objects and users in
+ * an {@link InMemoryUserStore}: token verification (optionally from the {@link VerifiedTokenCache}), then either the
+ * user load or, in stateless mode, the token version check. A database would add its round trip to every request
+ * outside stateless mode.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtRequestFilterBenchmark {
+
+    private static final FilterChain CHAIN = (request, response) -> {
+    };
+
+    @Param({"false", "true"})
+    public boolean stateless;
+
+    @Param({"false", "true"})
+    public boolean tokenCache;
+
+    private JwtRequestFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("johndoe");
+        user.setEmail("johndoe@example.com");
+        user.setPassword("{bcrypt}unused");
+        user.setRoles(EnumSet.of(RoleName.ADMIN, RoleName.NORMAL));
+        user.setTokenVersion(0);
+        InMemoryUserStore store = new InMemoryUserStore();
+        store.add(user);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JwtUtil jwtUtil = new JwtUtil("superSecretKeyHere");
+        CustomCustomerDetailsService userDetailsService = new CustomCustomerDetailsService(store.repo(),
+                new CoalescingUserLookups(store.repo(), meterRegistry, true),
+                new UnknownIdentifierCache(meterRegistry, true, 10_000, Duration.ofSeconds(30)),
+                null); // Only password upgrades invalidate the cache, and the filter never makes one
+
+        filter = new JwtRequestFilter();
+        ReflectionTestUtils.setField(filter, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(filter, "verifiedTokenCache",
+                new VerifiedTokenCache(jwtUtil, meterRegistry, tokenCache, 10_000, Duration.ofMinutes(15)));
+        ReflectionTestUtils.setField(filter, "tokenVersionChecker", new TokenVersionChecker(store.repo()));
+        ReflectionTestUtils.setField(filter, "stateless", stateless);
+        ReflectionTestUtils.setField(filter, "versionCheck", true);
+
+        String token = jwtUtil.generateToken("johndoe", List.of("ROLE_ADMIN", "ROLE_NORMAL"));
+        request = new MockHttpServletRequest("GET", "/api/users/id/1");
+        request.addHeader("Authorization", "Bearer " + token);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Authentication doFilterInternal() throws ServletException, IOException {
+        try {
+            filter.doFilterInternal(request, response, CHAIN);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            // Every request starts unauthenticated, as it does on a fresh servlet thread
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
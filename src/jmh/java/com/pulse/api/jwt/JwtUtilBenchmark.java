@@ -0,0 +1,46 @@
+package com.pulse.api.jwt;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JwtUtil operations of the login and request paths: signing a token at login, and the parses a request may make.
+ * {@link #extractUsername()} is one full parse (extractAllClaims); {@link #validateToken()} parses the token twice.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtUtilBenchmark {
+
+    private static final String SECRET = "superSecretKeyHere";
+    private static final List<String> ROLES = List.of("ROLE_ADMIN", "ROLE_NORMAL");
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(SECRET);
+        token = jwtUtil.generateToken("johndoe", ROLES, 3);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("johndoe", ROLES, 3);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtUtil.extractUsername(token);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtil.validateToken(token, "johndoe");
+    }
+}
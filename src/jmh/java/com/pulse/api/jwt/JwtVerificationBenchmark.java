@@ -0,0 +1,53 @@
+package com.pulse.api.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-request token handling of the original {@link JwtRequestFilter} (four independent parses with a
+ * String key) against the single {@link JwtUtil#verify(String)} pass.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "superSecretKeyHere";
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(SECRET);
+        token = jwtUtil.generateToken("johndoe", List.of("ROLE_ADMIN", "ROLE_NORMAL"));
+    }
+
+    @Benchmark
+    public void legacyFourParses(Blackhole blackhole) {
+        String username = legacyClaims(token).getSubject();
+        boolean valid = legacyClaims(token).getSubject().equals(username)
+                && !legacyClaims(token).getExpiration().before(new Date());
+        List<?> roles = legacyClaims(token).get("roles", List.class);
+        blackhole.consume(valid);
+        blackhole.consume(roles);
+    }
+
+    @Benchmark
+    public VerifiedToken singleVerify() {
+        return jwtUtil.verify(token);
+    }
+
+    private static Claims legacyClaims(String token) {
+        return Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody();
+    }
+}
@@ -0,0 +1,60 @@
+package com.pulse.api.repo;
+
+import com.pulse.api.model.User;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Users held in maps, behind a {@link UserRepo} that answers the lookups of the authentication path, so benchmarks
+ * measure the application code instead of a database. Any other repository method throws.
+ */
+public final class InMemoryUserStore {
+
+    private final Map<Long, User> byId = new ConcurrentHashMap<>();
+    private final Map<String, User> byUsername = new ConcurrentHashMap<>();
+    private final UserRepo repo = (UserRepo) Proxy.newProxyInstance(UserRepo.class.getClassLoader(),
+            new Class<?>[]{UserRepo.class}, (proxy, method, args) -> invoke(method, args));
+
+    public User add(User user) {
+        byId.put(user.getId(), user);
+        byUsername.put(user.getUsername(), user);
+        return user;
+    }
+
+    public UserRepo repo() {
+        return repo;
+    }
+
+    private Object invoke(Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "findCachedById" -> Optional.ofNullable(byId.get((Long) args[0]));
+            case "findCachedByUsername", "findByUsername" -> Optional.ofNullable(byUsername.get((String) args[0]));
+            case "findCandidatesByUsernameOrEmail" -> candidates((String) args[0], true);
+            case "findCandidatesByUsernameOrPhone" -> candidates((String) args[0], false);
+            case "findTokenVersionByUsername" ->
+                    Optional.ofNullable(byUsername.get((String) args[0])).map(User::getTokenVersion);
+            case "findAll" -> new ArrayList<>(byId.values());
+            case "hashCode" -> System.identityHashCode(repo);
+            case "equals" -> repo == args[0];
+            case "toString" -> "InMemoryUserStore(" + byId.size() + " users)";
+            default -> throw new UnsupportedOperationException(method.getName() + " is not supported in memory");
+        };
+    }
+
+    private List<User> candidates(String identifier, boolean email) {
+        List<User> candidates = new ArrayList<>(1);
+        for (User user : byId.values()) {
+            if (identifier.equals(user.getUsername())
+                    || identifier.equals(email ? user.getEmail() : user.getPhone())) {
+                candidates.add(user);
+            }
+        }
+        return candidates;
+    }
+}
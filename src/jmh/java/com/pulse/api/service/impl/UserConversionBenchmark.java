@@ -0,0 +1,66 @@
+package com.pulse.api.service.impl;
+
+import com.pulse.api.cache.CoalescingUserLookups;
+import com.pulse.api.dto.UserDto;
+import com.pulse.api.dto.UserResponse;
+import com.pulse.api.enums.Gender;
+import com.pulse.api.enums.RoleName;
+import com.pulse.api.model.User;
+import com.pulse.api.repo.InMemoryUserStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping a loaded user for a response: {@link UserServiceImpl#convertToDto} (getAllUsers, create and login) against
+ * {@link UserResponse#from(User)} (the read endpoints). Both build the profile picture URLs of every size variant.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserConversionBenchmark {
+
+    private UserServiceImpl userService;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        user = new User();
+        user.setId(42L);
+        user.setFirstName("John");
+        user.setLastName("Doe");
+        user.setUsername("johndoe");
+        user.setEmail("johndoe@example.com");
+        user.setPhone("1234567890");
+        user.setCountry("Nepal");
+        user.setGender(Gender.MALE);
+        user.setBio("Just a bio");
+        user.setProfilePicture("2d711642b726b04401627ca9fbac32f5c8530fb1903cc4db02258717921a4881.png");
+        user.setRoles(EnumSet.of(RoleName.NORMAL));
+        user.setCreatedAt(LocalDateTime.now());
+        user.setUpdatedAt(LocalDateTime.now());
+        user.setVersion(3L);
+
+        // Conversion touches none of the collaborators; the store only stands in for the database
+        InMemoryUserStore store = new InMemoryUserStore();
+        store.add(user);
+        userService = new UserServiceImpl(null, store.repo(), null, null, null,
+                new CoalescingUserLookups(store.repo(), new SimpleMeterRegistry(), true));
+    }
+
+    @Benchmark
+    public UserDto convertToDto() {
+        return userService.convertToDto(user);
+    }
+
+    @Benchmark
+    public UserResponse userResponse() {
+        return UserResponse.from(user);
+    }
+}
@@ -0,0 +1,83 @@
+package com.pulse.api.storage;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sending one stored profile picture to the client, with /dev/null standing in for the socket:
+ * <ul>
+ *     <li>{@link #byteArray()}: read the whole file into a byte[] and write it, as a {@code ResponseEntity<byte[]>} would</li>
+ *     <li>{@link #streamCopy()}: Spring's Resource path, used for Range requests and without sendfile</li>
+ *     <li>{@link #transferTo()}: FileChannel.transferTo, the kernel-side copy Tomcat's sendfile performs</li>
+ * </ul>
+ * Run with the gc profiler (enabled by the jmh profile): gc.alloc.rate.norm grows with the picture size only for
+ * {@link #byteArray()}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProfilePictureTransferBenchmark {
+
+    @Param({"65536", "1048576"})
+    public int size;
+
+    private Path picture;
+    private FileChannel sink;
+    private OutputStream sinkStream;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+        picture = Files.createTempFile("profile-picture", ".png");
+        Files.write(picture, content);
+        sink = FileChannel.open(Path.of("/dev/null"), StandardOpenOption.WRITE);
+        sinkStream = Channels.newOutputStream(sink);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        sink.close();
+        Files.deleteIfExists(picture);
+    }
+
+    @Benchmark
+    public int byteArray() throws IOException {
+        byte[] body = Files.readAllBytes(picture);
+        sinkStream.write(body);
+        return body.length;
+    }
+
+    @Benchmark
+    public int streamCopy() throws IOException {
+        try (InputStream in = Files.newInputStream(picture)) {
+            return StreamUtils.copy(in, sinkStream);
+        }
+    }
+
+    @Benchmark
+    public long transferTo() throws IOException {
+        try (FileChannel source = FileChannel.open(picture, StandardOpenOption.READ)) {
+            long length = source.size();
+            long position = 0;
+            while (position < length) {
+                position += source.transferTo(position, length - position, sink);
+            }
+            return position;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.pulse.api.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies (in microseconds) and failures of each journey step, recorded concurrently by the workers of one phase.
+ */
+final class LatencyStats {
+
+    private final Map<UserJourney.Step, Histogram> latencies = new EnumMap<>(UserJourney.Step.class);
+    private final Map<UserJourney.Step, LongAdder> errors = new EnumMap<>(UserJourney.Step.class);
+    private final LongAdder journeys = new LongAdder();
+
+    LatencyStats() {
+        for (UserJourney.Step step : UserJourney.Step.values()) {
+            latencies.put(step, new ConcurrentHistogram(3));
+            errors.put(step, new LongAdder());
+        }
+    }
+
+    void record(UserJourney.Step step, long nanos) {
+        latencies.get(step).recordValue(Math.max(1, nanos / 1_000));
+    }
+
+    void fail(UserJourney.Step step) {
+        errors.get(step).increment();
+    }
+
+    void completeJourney() {
+        journeys.increment();
+    }
+
+    long journeys() {
+        return journeys.sum();
+    }
+
+    // Successful and failed requests
+    long requests() {
+        long requests = 0;
+        for (UserJourney.Step step : UserJourney.Step.values()) {
+            requests += latencies.get(step).getTotalCount() + errors.get(step).sum();
+        }
+        return requests;
+    }
+
+    Map<String, Object> report(UserJourney.Step step, double seconds) {
+        Histogram histogram = latencies.get(step);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("requests", histogram.getTotalCount());
+        report.put("errors", errors.get(step).sum());
+        report.put("throughput", histogram.getTotalCount() / seconds);
+        report.put("p50Ms", millis(histogram.getValueAtPercentile(50)));
+        report.put("p99Ms", millis(histogram.getValueAtPercentile(99)));
+        report.put("p999Ms", millis(histogram.getValueAtPercentile(99.9)));
+        report.put("maxMs", millis(histogram.getMaxValue()));
+        return report;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1_000.0;
+    }
+}
@@ -0,0 +1,277 @@
+package com.pulse.api.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pulse.api.PulseApiSecureApplication;
+import com.pulse.api.enums.RoleName;
+import com.pulse.api.model.User;
+import com.pulse.api.repo.UserRepo;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end load test: boots {@link PulseApiSecureApplication} in-process on H2 in PostgreSQL mode, seeds users, and
+ * runs {@link UserJourney} from a number of concurrent clients, one concurrency level after another. Reports per step
+ * throughput and p50/p99/p999 latency, and the bytes the server's threads allocated per request. Results are printed
+ * and written as JSON.
+ * <p>
+ * Configured with system properties (see the loadtest profile in pom.xml). Program arguments are passed to the
+ * application, e.g. {@code --jwt.stateless.enabled=true}, to compare configurations.
+ * <p>
+ * Allocation is summed over the live platform threads other than the load generator's; bytes allocated by threads
+ * that end during a measurement, or by virtual threads, are not counted.
+ */
+public final class LoadTest {
+
+    private static final String PASSWORD = "load-test-password";
+    private static final int PICTURES = 16;
+    private static final int PICTURE_SIZE = 256;
+
+    record SeededUser(long id, String username) {
+    }
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("loadtest.users", 100);
+        int[] concurrencyLevels = Arrays.stream(System.getProperty("loadtest.concurrency", "1,8,32").split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        Duration warmup = DurationStyle.detectAndParse(System.getProperty("loadtest.warmup", "10s"));
+        Duration duration = DurationStyle.detectAndParse(System.getProperty("loadtest.duration", "30s"));
+        Path resultFile = Path.of(System.getProperty("loadtest.result.file", "target/loadtest-result.json"));
+        for (int concurrency : concurrencyLevels) {
+            if (concurrency > users) {
+                // Each client owns its users, so no two clients update the same user at once
+                throw new IllegalArgumentException("loadtest.users must be at least the highest concurrency level");
+            }
+        }
+
+        // Devtools would restart the application in another class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        Path storage = Files.createTempDirectory("pulse-loadtest");
+        ConfigurableApplicationContext context = SpringApplication.run(PulseApiSecureApplication.class,
+                applicationArgs(storage, args));
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            List<SeededUser> seeded = seed(context, users);
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newCachedThreadPool(named("loadtest-http-")))
+                    .build();
+            UserJourney journey = new UserJourney(client, "http://localhost:" + port, PASSWORD, pictures());
+
+            List<Map<String, Object>> levels = new ArrayList<>();
+            for (int concurrency : concurrencyLevels) {
+                run(journey, seeded, concurrency, warmup, new LatencyStats());
+
+                LatencyStats stats = new LatencyStats();
+                long allocatedBefore = serverAllocatedBytes();
+                long start = System.nanoTime();
+                run(journey, seeded, concurrency, duration, stats);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                long allocated = serverAllocatedBytes() - allocatedBefore;
+
+                Map<String, Object> level = report(stats, concurrency, seconds, allocated);
+                print(level);
+                levels.add(level);
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("users", users);
+            result.put("warmupSeconds", warmup.toSeconds());
+            result.put("durationSeconds", duration.toSeconds());
+            result.put("applicationArgs", String.join(" ", args).trim());
+            result.put("levels", levels);
+            Files.createDirectories(resultFile.toAbsolutePath().getParent());
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(resultFile.toFile(), result);
+            System.out.println("Load test result is saved to " + resultFile.toAbsolutePath());
+        } finally {
+            SpringApplication.exit(context);
+        }
+    }
+
+    // The embedded database and quiet logging; arguments given on the command line win
+    private static String[] applicationArgs(Path storage, String[] args) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("spring.datasource.url",
+                "jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.org.hibernate.SQL", "WARN");
+        properties.put("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+        // Logins carry no token, which the filter reports on every one of them
+        properties.put("logging.level.com.pulse.api.jwt.JwtRequestFilter", "ERROR");
+        properties.put("pulse.storage.local.root", storage.toString());
+        // Every client logs in once per iteration, far above the per-identifier limit
+        properties.put("pulse.login.rate-limit.enabled", "false");
+        properties.put("pulse.password-hashing.strength", System.getProperty("loadtest.bcrypt-strength", "10"));
+        // The loadtest profile passes all of loadtest.args as one argument
+        for (String arg : String.join(" ", args).trim().split("\\s+")) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                properties.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+    }
+
+    // Admins, so that every client may update its own user; all share one password hash to keep seeding fast
+    private static List<SeededUser> seed(ConfigurableApplicationContext context, int count) {
+        UserRepo userRepo = context.getBean(UserRepo.class);
+        String hash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setUsername("loaduser" + i);
+            user.setEmail("loaduser" + i + "@loadtest.invalid");
+            user.setPhone("555" + String.format("%07d", i));
+            user.setFirstName("Load");
+            user.setLastName("User " + i);
+            user.setPassword(hash);
+            user.setRoles(EnumSet.of(RoleName.ADMIN, RoleName.NORMAL));
+            users.add(user);
+        }
+        List<SeededUser> seeded = new ArrayList<>(count);
+        for (User user : userRepo.saveAll(users)) {
+            seeded.add(new SeededUser(user.getId(), user.getUsername()));
+        }
+        return seeded;
+    }
+
+    // Client i runs the journeys of users i, i + concurrency, ... in turn until the phase ends
+    private static void run(UserJourney journey, List<SeededUser> users, int concurrency, Duration phase,
+                            LatencyStats stats) throws InterruptedException {
+        long deadline = System.nanoTime() + phase.toNanos();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency, named("loadtest-client-"));
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>(concurrency);
+            for (int client = 0; client < concurrency; client++) {
+                int first = client;
+                tasks.add(() -> {
+                    long iteration = 0;
+                    for (int next = first; System.nanoTime() < deadline; next += concurrency, iteration++) {
+                        if (next >= users.size()) {
+                            next = first;
+                        }
+                        journey.run(users.get(next), iteration, stats);
+                    }
+                    return null;
+                });
+            }
+            clients.invokeAll(tasks);
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private static Map<String, Object> report(LatencyStats stats, int concurrency, double seconds, long allocated) {
+        long requests = stats.requests();
+        Map<String, Object> level = new LinkedHashMap<>();
+        level.put("concurrency", concurrency);
+        level.put("journeys", stats.journeys());
+        level.put("journeysPerSecond", stats.journeys() / seconds);
+        level.put("requestsPerSecond", requests / seconds);
+        level.put("allocatedBytesPerRequest", requests == 0 ? 0 : allocated / requests);
+        Map<String, Object> steps = new LinkedHashMap<>();
+        for (UserJourney.Step step : UserJourney.Step.values()) {
+            steps.put(step.name(), stats.report(step, seconds));
+        }
+        level.put("steps", steps);
+        return level;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> level) {
+        System.out.printf("%nConcurrency %d: %.1f journeys/s, %.1f requests/s, %d bytes allocated per request%n",
+                level.get("concurrency"), level.get("journeysPerSecond"), level.get("requestsPerSecond"),
+                level.get("allocatedBytesPerRequest"));
+        System.out.printf("%-10s %10s %8s %10s %9s %9s %9s %9s%n",
+                "step", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        ((Map<String, Map<String, Object>>) level.get("steps")).forEach((step, report) ->
+                System.out.printf("%-10s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n", step,
+                        report.get("requests"), report.get("errors"), report.get("throughput"), report.get("p50Ms"),
+                        report.get("p99Ms"), report.get("p999Ms"), report.get("maxMs")));
+    }
+
+    private static long serverAllocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] ids = threads.getAllThreadIds();
+        ThreadInfo[] infos = threads.getThreadInfo(ids);
+        long[] allocated = threads.getThreadAllocatedBytes(ids);
+        long total = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (infos[i] != null && allocated[i] > 0 && !isLoadGenerator(infos[i].getThreadName())) {
+                total += allocated[i];
+            }
+        }
+        return total;
+    }
+
+    private static boolean isLoadGenerator(String threadName) {
+        return threadName.startsWith("loadtest-") || threadName.startsWith("HttpClient-");
+    }
+
+    // Small pictures of varying content, so uploads are not all deduplicated by content hash
+    private static List<byte[]> pictures() throws IOException {
+        List<byte[]> pictures = new ArrayList<>(PICTURES);
+        for (int i = 0; i < PICTURES; i++) {
+            BufferedImage image = new BufferedImage(PICTURE_SIZE, PICTURE_SIZE, BufferedImage.TYPE_INT_RGB);
+            int color = ThreadLocalRandom.current().nextInt(0xFFFFFF);
+            for (int y = 0; y < PICTURE_SIZE; y++) {
+                for (int x = 0; x < PICTURE_SIZE; x++) {
+                    image.setRGB(x, y, color ^ (x * y));
+                }
+            }
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", png);
+            pictures.add(png.toByteArray());
+        }
+        return pictures;
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package com.pulse.api.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * What one client does in an iteration, over real HTTP: log in, fetch its user, change the bio with the fetched ETag
+ * as If-Match, and upload a profile picture. A failed step ends the iteration, since later steps depend on it.
+ */
+final class UserJourney {
+
+    enum Step { LOGIN, GET_USER, UPDATE, UPLOAD }
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final String password;
+    private final List<byte[]> pictures;
+
+    UserJourney(HttpClient client, String baseUrl, String password, List<byte[]> pictures) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.password = password;
+        this.pictures = pictures;
+    }
+
+    void run(LoadTest.SeededUser user, long iteration, LatencyStats stats) {
+        HttpResponse<String> login = send(Step.LOGIN, stats, HttpRequest.newBuilder(uri("/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(json(Map.of("identifier", user.username(), "password", password))));
+        if (login == null) {
+            return;
+        }
+        String token = "Bearer " + readTree(login.body()).path("jwt").asText();
+
+        HttpResponse<String> fetched = send(Step.GET_USER, stats, HttpRequest.newBuilder(uri("/api/users/id/" + user.id()))
+                .header("Authorization", token)
+                .GET());
+        if (fetched == null) {
+            return;
+        }
+
+        HttpRequest.Builder update = HttpRequest.newBuilder(uri("/api/users/update/" + user.id()))
+                .header("Authorization", token)
+                .header("Content-Type", "application/json")
+                .method("PATCH", json(Map.of("bio", "Load test iteration " + iteration)));
+        fetched.headers().firstValue("ETag").ifPresent(etag -> update.header("If-Match", etag));
+        if (send(Step.UPDATE, stats, update) == null) {
+            return;
+        }
+
+        String boundary = UUID.randomUUID().toString();
+        byte[] picture = pictures.get((int) (iteration % pictures.size()));
+        if (send(Step.UPLOAD, stats, HttpRequest.newBuilder(uri("/api/users/upload-profile-picture/" + user.id()))
+                .header("Authorization", token)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(multipart(boundary, picture)))) == null) {
+            return;
+        }
+        stats.completeJourney();
+    }
+
+    // The response, or null after recording a failure
+    private HttpResponse<String> send(Step step, LatencyStats stats, HttpRequest.Builder request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() / 100 != 2) {
+                stats.fail(step);
+                return null;
+            }
+            stats.record(step, System.nanoTime() - start);
+            return response;
+        } catch (IOException e) {
+            stats.fail(step);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stats.fail(step);
+            return null;
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private static HttpRequest.BodyPublisher json(Object body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static JsonNode readTree(String body) {
+        try {
+            return JSON.readTree(body);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] multipart(String boundary, byte[] picture) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(picture.length + 256);
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"picture.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(picture);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return body.toByteArray();
+    }
+}
@@ -0,0 +1,74 @@
+package com.pulse.api.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Hibernate second-level cache kept in local, size-bounded Caffeine caches, one per region. Hibernate's access
+ * strategies (soft locks for read-write entities, timestamps for query results) run on top of it unchanged.
+ * <p>
+ * Configured through {@code spring.jpa.properties}:
+ * {@value #MAXIMUM_SIZE} entries per entity, natural-id or query region, and {@value #EXPIRE_AFTER_WRITE}, which also
+ * bounds how long another node's change can go unnoticed when no invalidation channel is configured.
+ */
+public class CaffeineRegionFactory extends RegionFactoryTemplate {
+
+    public static final String MAXIMUM_SIZE = "hibernate.cache.caffeine.maximum-size";
+    public static final String EXPIRE_AFTER_WRITE = "hibernate.cache.caffeine.expire-after-write";
+
+    private static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+    private static final Duration DEFAULT_EXPIRE_AFTER_WRITE = Duration.ofMinutes(10);
+
+    private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+    private Duration expireAfterWrite = DEFAULT_EXPIRE_AFTER_WRITE;
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map<String, Object> configValues) {
+        Object size = configValues.get(MAXIMUM_SIZE);
+        if (size != null) {
+            maximumSize = Long.parseLong(size.toString().trim());
+        }
+        Object expiry = configValues.get(EXPIRE_AFTER_WRITE);
+        if (expiry != null) {
+            expireAfterWrite = DurationStyle.detectAndParse(expiry.toString().trim());
+        }
+    }
+
+    @Override
+    protected void releaseFromUse() {
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                    DomainDataRegionBuildingContext buildingContext) {
+        return bounded();
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+        return bounded();
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+        // One entry per table. It must never be evicted early, or a cached query result could outlive an update
+        return new CaffeineStorageAccess(Caffeine.newBuilder().build());
+    }
+
+    private CaffeineStorageAccess bounded() {
+        return new CaffeineStorageAccess(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build());
+    }
+}
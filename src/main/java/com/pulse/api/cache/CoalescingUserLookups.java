@@ -0,0 +1,84 @@
+package com.pulse.api.cache;
+
+import com.pulse.api.enums.IdentifierType;
+import com.pulse.api.model.User;
+import com.pulse.api.repo.UserRepo;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Read-only user lookups where concurrent callers asking for the same key share one query (see {@link SingleFlight}),
+ * so a burst of requests for a popular profile, or for the same account during token checks, reaches the database
+ * once. Each repository call runs in its own read-only transaction. Callers wait outside any transaction, so waiting
+ * does not hold a pooled connection.
+ * <p>
+ * Concurrent callers may receive the same {@link User} instance: treat it as read-only, and load users that are about
+ * to be changed from {@link UserRepo} directly.
+ */
+@Component
+public class CoalescingUserLookups {
+
+    private final UserRepo userRepo;
+    private final boolean enabled;
+    private final SingleFlight<Long, Optional<User>> byId = new SingleFlight<>();
+    private final SingleFlight<String, Optional<User>> byUsername = new SingleFlight<>();
+    private final SingleFlight<String, Optional<User>> byEmail = new SingleFlight<>();
+    private final SingleFlight<Long, Optional<Long>> versionById = new SingleFlight<>();
+    private final SingleFlight<String, List<User>> loginCandidates = new SingleFlight<>();
+
+    @Autowired
+    public CoalescingUserLookups(UserRepo userRepo, MeterRegistry meterRegistry,
+                                 @Value("${pulse.users.lookup.coalescing.enabled:true}") boolean enabled) {
+        this.userRepo = userRepo;
+        this.enabled = enabled;
+        monitor(meterRegistry, byId, "id");
+        monitor(meterRegistry, byUsername, "username");
+        monitor(meterRegistry, byEmail, "email");
+        monitor(meterRegistry, versionById, "version");
+        monitor(meterRegistry, loginCandidates, "login");
+    }
+
+    public Optional<User> findById(Long id) {
+        return execute(byId, id, () -> userRepo.findCachedById(id));
+    }
+
+    public Optional<User> findByUsername(String username) {
+        return execute(byUsername, username, () -> userRepo.findCachedByUsername(username));
+    }
+
+    public Optional<User> findByEmail(String email) {
+        return execute(byEmail, email, () -> userRepo.findCachedByEmail(email));
+    }
+
+    // Conditional GETs from polling clients only need this to answer 304
+    public Optional<Long> findVersionById(Long id) {
+        return execute(versionById, id, () -> userRepo.findCachedVersionById(id));
+    }
+
+    // Users whose username, or email or phone depending on the identifier's form, matches the login identifier
+    public List<User> findLoginCandidates(String identifier) {
+        return execute(loginCandidates, identifier, () -> switch (IdentifierType.classify(identifier)) {
+            case EMAIL -> userRepo.findCandidatesByUsernameOrEmail(identifier);
+            // Phone numbers are stored free-form, so a non-numeric identifier may still be a phone number
+            case PHONE, USERNAME -> userRepo.findCandidatesByUsernameOrPhone(identifier);
+        });
+    }
+
+    private <K, V> V execute(SingleFlight<K, V> flight, K key, Supplier<V> loader) {
+        return enabled ? flight.execute(key, loader) : loader.get();
+    }
+
+    private static void monitor(MeterRegistry meterRegistry, SingleFlight<?, ?> flight, String lookup) {
+        FunctionCounter.builder("pulse.users.lookups.coalesced", flight, SingleFlight::coalescedCount)
+                .description("User lookups answered by joining an identical in-flight query")
+                .tag("lookup", lookup)
+                .register(meterRegistry);
+    }
+}
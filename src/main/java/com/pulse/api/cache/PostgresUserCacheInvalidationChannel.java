@@ -0,0 +1,142 @@
+package com.pulse.api.cache;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invalidation channel over PostgreSQL LISTEN/NOTIFY, so nodes sharing the database need no other infrastructure.
+ * Messages are "&lt;node id&gt;:&lt;user id&gt;", or "&lt;node id&gt;:*" for every user. Each node keeps one pooled
+ * connection listening on a daemon thread. After that connection is lost, the node evicts all cached users, because
+ * notifications sent in the meantime are not replayed.
+ */
+@Component
+@ConditionalOnProperty(name = "pulse.users.cache.invalidation.channel", havingValue = "postgres")
+public class PostgresUserCacheInvalidationChannel implements UserCacheInvalidationChannel {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresUserCacheInvalidationChannel.class);
+
+    static final String CHANNEL = "pulse_user_cache";
+    private static final String ALL_USERS = "*";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration pollInterval;
+    private final Duration reconnectDelay;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Thread listenerThread;
+    private volatile boolean running = true;
+
+    @Autowired
+    public PostgresUserCacheInvalidationChannel(DataSource dataSource,
+                                                @Value("${pulse.users.cache.invalidation.poll-interval:500ms}") Duration pollInterval,
+                                                @Value("${pulse.users.cache.invalidation.reconnect-delay:5s}") Duration reconnectDelay) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.pollInterval = pollInterval;
+        this.reconnectDelay = reconnectDelay;
+        this.listenerThread = new Thread(this::listen, "user-cache-invalidation");
+        this.listenerThread.setDaemon(true);
+        this.listenerThread.start();
+    }
+
+    @Override
+    public void publish(long userId) {
+        notify(Long.toString(userId));
+    }
+
+    @Override
+    public void publishAll() {
+        notify(ALL_USERS);
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    private void notify(String target) {
+        try {
+            jdbcTemplate.query("select pg_notify(?, ?)", rs -> {
+            }, CHANNEL, nodeId + ":" + target);
+        } catch (RuntimeException e) {
+            // The change itself is committed; the other nodes catch up when their entries expire
+            logger.warn("Could not publish user cache invalidation for {}", target, e);
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                // Anything published before LISTEN took effect was missed
+                listeners.forEach(Listener::allChanged);
+
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] received = notifications.getNotifications((int) pollInterval.toMillis());
+                    if (received != null) {
+                        for (PGNotification notification : received) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("User cache invalidation channel lost its connection, reconnecting in {}", reconnectDelay, e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(reconnectDelay.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String message) {
+        int separator = message.indexOf(':');
+        // This node's cache was kept current by the change itself
+        if (separator < 0 || nodeId.equals(message.substring(0, separator))) {
+            return;
+        }
+        String target = message.substring(separator + 1);
+        if (ALL_USERS.equals(target)) {
+            listeners.forEach(Listener::allChanged);
+            return;
+        }
+        try {
+            long userId = Long.parseLong(target);
+            listeners.forEach(listener -> listener.userChanged(userId));
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring malformed user cache invalidation '{}'", message);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        listenerThread.interrupt();
+        listenerThread.join(pollInterval.toMillis() * 2);
+    }
+}
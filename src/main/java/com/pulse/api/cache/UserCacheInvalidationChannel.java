@@ -0,0 +1,24 @@
+package com.pulse.api.cache;
+
+/**
+ * Carries user cache invalidations between the nodes of a deployment, so a change committed on one node drops the
+ * stale copies the others hold in their second-level caches. A node does not receive its own messages.
+ */
+public interface UserCacheInvalidationChannel {
+
+    // Called after the change to the user has been committed
+    void publish(long userId);
+
+    // For changes to many users at once, such as an import
+    void publishAll();
+
+    void subscribe(Listener listener);
+
+    interface Listener {
+
+        void userChanged(long userId);
+
+        // Also delivered when messages may have been missed, for example after the channel reconnected
+        void allChanged();
+    }
+}
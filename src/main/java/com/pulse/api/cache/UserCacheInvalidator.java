@@ -0,0 +1,95 @@
+package com.pulse.api.cache;
+
+import com.pulse.api.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps cached users consistent across nodes. On the node that makes a change, Hibernate's read-write strategy
+ * already updates or evicts the cached entry in the same transaction, so the next read there is served from the
+ * fresh entry. Other nodes are told through the {@link UserCacheInvalidationChannel}, when one is configured, and
+ * evict their copy. Without a channel, their entries expire after
+ * {@value CaffeineRegionFactory#EXPIRE_AFTER_WRITE}.
+ */
+@Component
+public class UserCacheInvalidator implements UserCacheInvalidationChannel.Listener {
+
+    private final Cache cache;
+    private final UserCacheInvalidationChannel channel;
+
+    @Autowired
+    public UserCacheInvalidator(EntityManagerFactory entityManagerFactory,
+                                ObjectProvider<UserCacheInvalidationChannel> channel) {
+        this(entityManagerFactory.getCache().unwrap(Cache.class), channel.getIfAvailable());
+    }
+
+    UserCacheInvalidator(Cache cache, UserCacheInvalidationChannel channel) {
+        this.cache = cache;
+        this.channel = channel;
+        if (channel != null) {
+            channel.subscribe(this);
+        }
+    }
+
+    // Inside a transaction, other nodes are told after it commits, so they cannot reload the row before the change
+    public void invalidate(Long userId) {
+        if (channel != null && userId != null) {
+            afterCommit(() -> channel.publish(userId));
+        }
+    }
+
+    // Bulk updates skip the read-write strategy, so this node's copy is evicted as well, once the update is committed
+    public void invalidateAfterBulkUpdate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        afterCommit(() -> {
+            cache.evictEntityData(User.class, userId);
+            if (channel != null) {
+                channel.publish(userId);
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        if (channel != null) {
+            afterCommit(channel::publishAll);
+        }
+    }
+
+    private static void afterCommit(Runnable publish) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish.run();
+            }
+        });
+    }
+
+    @Override
+    public void userChanged(long userId) {
+        cache.evictEntityData(User.class, userId);
+        evictLookups();
+    }
+
+    @Override
+    public void allChanged() {
+        cache.evictEntityData(User.class);
+        evictLookups();
+    }
+
+    // The username or email that pointed to the user before the change is not known here
+    private void evictLookups() {
+        cache.evictNaturalIdData(User.class);
+        cache.evictQueryRegion(User.EMAIL_QUERY_CACHE_REGION);
+    }
+}
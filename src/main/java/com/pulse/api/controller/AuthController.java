@@ -3,15 +3,16 @@ package com.pulse.api.controller;
 import com.pulse.api.jwt.AuthenticationRequest;
 import com.pulse.api.jwt.AuthenticationResponse;
 import com.pulse.api.jwt.JwtUtil; // Import your JwtUtil
+import com.pulse.api.jwt.TokenVersionChecker;
+import com.pulse.api.security.LoginRateLimiter;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.web.bind.annotation.*;
 
@@ -24,32 +25,39 @@ public class AuthController {
 
     private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil; // Add JwtUtil
-    private final UserDetailsService userDetailsService; // Add UserDetailsService
+    private final TokenVersionChecker tokenVersionChecker;
+    private final LoginRateLimiter loginRateLimiter;
 
     @Autowired
-    public AuthController(AuthenticationManager authenticationManager, JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    public AuthController(AuthenticationManager authenticationManager, JwtUtil jwtUtil, TokenVersionChecker tokenVersionChecker,
+                          LoginRateLimiter loginRateLimiter) {
         this.authenticationManager = authenticationManager;
         this.jwtUtil = jwtUtil; // Initialize JwtUtil
-        this.userDetailsService = userDetailsService; // Initialize UserDetailsService
+        this.tokenVersionChecker = tokenVersionChecker;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
+    // Only the BCrypt check runs on the password hashing pool (see PooledPasswordEncoder); a full pool answers 503
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody AuthenticationRequest request) {
+    public ResponseEntity<?> login(@RequestBody AuthenticationRequest request, HttpServletRequest httpRequest) {
         String identifier = request.getIdentifier();
         String password = request.getPassword();
+
+        // Throttled attempts are answered with 429 before any user is loaded or password hashed
+        loginRateLimiter.acquire(identifier, httpRequest.getRemoteAddr());
+
         try {
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(identifier, password)
             );
-            SecurityContextHolder.getContext().setAuthentication(authentication);
 
-            // Get the UserDetails from the authentication object
-            UserDetails userDetails = userDetailsService.loadUserByUsername(identifier);
+            // Get the UserDetails from the authentication object; the provider already loaded it, so don't query again
+            UserDetails userDetails = (UserDetails) authentication.getPrincipal();
 
             // Generate the JWT token
             String jwtToken = jwtUtil.generateToken(userDetails.getUsername(), userDetails.getAuthorities().stream()
                     .map(GrantedAuthority::getAuthority) // Correctly obtain authorities
-                    .collect(Collectors.toList()));
+                    .collect(Collectors.toList()), tokenVersionChecker.currentVersion(userDetails.getUsername()));
 
             // Return the success message and token
             String message = "Login successful"; // Define the success message
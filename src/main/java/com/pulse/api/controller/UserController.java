@@ -1,82 +1,175 @@
 package com.pulse.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.pulse.api.dto.UserDto;
+import com.pulse.api.dto.UserImportResult;
+import com.pulse.api.dto.UserImportRow;
+import com.pulse.api.dto.UserPage;
+import com.pulse.api.dto.UserPatch;
+import com.pulse.api.dto.UserResponse;
 import com.pulse.api.exceptions.ResourceNotFoundException;
+import com.pulse.api.service.UserImportService;
 import com.pulse.api.service.UserService;
+import com.pulse.api.storage.ProfilePictureFormats;
+import com.pulse.api.utils.UserCsvParser;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
 
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    // Stored pictures are named by their content digest and never change, so clients may cache them indefinitely
+    private static final CacheControl PROFILE_PICTURE_CACHE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+    // Keeps browsers from guessing a script or page type from the bytes of a served picture
+    private static final String NOSNIFF_HEADER = "X-Content-Type-Options";
+
+    // Tomcat sends a file straight from the page cache to the socket when these request attributes are set
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserImportService userImportService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.userImportService = userImportService;
+        this.objectMapper = objectMapper;
     }
 
+    // Completes asynchronously: the request thread is released while the profile picture is stored
     @PostMapping("/create")
-    public ResponseEntity<?> createUser(@Valid @ModelAttribute UserDto userDto, BindingResult bindingResult) {
+    public CompletableFuture<ResponseEntity<?>> createUser(@Valid @ModelAttribute UserDto userDto, BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
-            return new ResponseEntity<>(processErrors(bindingResult), HttpStatus.BAD_REQUEST);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(processErrors(bindingResult), HttpStatus.BAD_REQUEST));
         }
 
-        UserDto createdUser = userService.createUser(userDto);
+        return userService.createUser(userDto).thenApply(createdUser -> {
+            // Prepare the response body
+            Map<String, Object> responseBody = new HashMap<>();
+            String successMessage = "User '" + createdUser.getUsername() + "' created successfully";
+            responseBody.put("message", successMessage);
+            responseBody.put("user", createdUser);
+
+            return new ResponseEntity<>(responseBody, HttpStatus.CREATED);
+        });
+    }
+
 
-        // Prepare the response body
-        Map<String, Object> responseBody = new HashMap<>();
-        String successMessage = "User '" + createdUser.getUsername() + "' created successfully";
-        responseBody.put("message", successMessage);
-        responseBody.put("user", createdUser);
 
-        return new ResponseEntity<>(responseBody, HttpStatus.CREATED);
+    // Bulk import; each row is accepted or rejected on its own and reported in "results" in submission order
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> importUsers(@RequestBody List<UserImportRow> rows) {
+        return importResponse(userImportService.importUsers(rows));
     }
 
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<Map<String, Object>> importUsersCsv(HttpServletRequest request) throws IOException {
+        List<UserImportRow> rows = UserCsvParser.parse(request.getReader(), userImportService.getMaxRows());
+        return importResponse(userImportService.importUsers(rows));
+    }
 
+    private ResponseEntity<Map<String, Object>> importResponse(List<UserImportResult> results) {
+        long created = results.stream().filter(result -> result.status() == UserImportResult.Status.CREATED).count();
+
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("message", "Imported " + created + " of " + results.size() + " users");
+        responseBody.put("created", created);
+        responseBody.put("rejected", results.size() - created);
+        responseBody.put("results", results);
+        return new ResponseEntity<>(responseBody, HttpStatus.OK);
+    }
 
     // Update an existing user
     @PutMapping("/update/{id}")
-    public ResponseEntity<?> updateUser(@PathVariable("id") Long id, @Valid @ModelAttribute UserDto userDto, BindingResult bindingResult) {
+    public CompletableFuture<ResponseEntity<?>> updateUser(@PathVariable("id") Long id, @Valid @ModelAttribute UserDto userDto, BindingResult bindingResult,
+                                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         if (bindingResult.hasErrors()) {
-            return new ResponseEntity<>(processErrors(bindingResult), HttpStatus.BAD_REQUEST);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(processErrors(bindingResult), HttpStatus.BAD_REQUEST));
         }
 
-        // Call the service to update the user
-        userService.updateUser(id, userDto);
+        // Call the service to update the user; with If-Match, only if nobody changed it since the client read it
+        // The service completes with the user as saved, so there is nothing to fetch back
+        return userService.updateUser(id, userDto, UserETags.requiredVersion(id, ifMatch)).thenApply(updatedUser -> {
+            // Prepare the response body
+            Map<String, Object> responseBody = new HashMap<>();
+            String successMessage = "User '" + updatedUser.username() + "' updated successfully";
+            responseBody.put("message", successMessage);
+            responseBody.put("user", updatedUser);
 
-        // Retrieve the updated user details (you can fetch it back or return the same userDto)
-        UserDto updatedUser = userService.findUserById(id);
+            return ResponseEntity.ok().eTag(UserETags.of(updatedUser)).body(responseBody);
+        });
+    }
 
-        // Prepare the response body
+    // Update only the fields present in the JSON body
+    @PatchMapping(value = "/update/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> patchUser(@PathVariable("id") Long id, @RequestBody UserPatch patch,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         Map<String, Object> responseBody = new HashMap<>();
-        String successMessage = "User '" + updatedUser.getUsername() + "' updated successfully";
-        responseBody.put("message", successMessage);
-        responseBody.put("user", updatedUser);
 
-        return new ResponseEntity<>(responseBody, HttpStatus.OK);
+        try {
+            // Built from the saved entity, so there is nothing to fetch back
+            UserResponse updatedUser = userService.patchUser(id, patch, UserETags.requiredVersion(id, ifMatch));
+            responseBody.put("message", "User '" + updatedUser.username() + "' updated successfully");
+            responseBody.put("user", updatedUser);
+            return ResponseEntity.ok().eTag(UserETags.of(updatedUser)).body(responseBody);
+        } catch (ResourceNotFoundException e) {
+            responseBody.put("message", e.getMessage());
+            return new ResponseEntity<>(responseBody, HttpStatus.NOT_FOUND);
+        }
     }
 
     // Get user by id
     @GetMapping("/id/{id}")
-    public ResponseEntity<Map<String, Object>> getUserById(@PathVariable("id") Long id) {
+    public ResponseEntity<Map<String, Object>> getUserById(@PathVariable("id") Long id, WebRequest webRequest) {
         Map<String, Object> responseBody = new HashMap<>();
 
+        // A polling client revalidating its copy gets a 304 decided from the version alone, without loading the user
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Long version = userService.findUserVersion(id).orElse(null);
+            if (version != null && webRequest.checkNotModified(UserETags.of(id, version))) {
+                return null;
+            }
+        }
+
         try {
-            UserDto userDto = userService.findUserById(id);
+            UserResponse user = userService.findUserById(id);
             responseBody.put("message", "User with id " + id + " fetched successfully");
-            responseBody.put("user", userDto);
-            return new ResponseEntity<>(responseBody, HttpStatus.OK);
+            responseBody.put("user", user);
+            return ResponseEntity.ok().eTag(UserETags.of(user)).body(responseBody);
         } catch (ResourceNotFoundException e) {
             responseBody.put("message", e.getMessage());
             return new ResponseEntity<>(responseBody, HttpStatus.NOT_FOUND);
@@ -89,10 +182,11 @@ public class UserController {
         Map<String, Object> responseBody = new HashMap<>();
 
         try {
-            UserDto userDto = userService.findUserByEmail(email);
+            UserResponse user = userService.findUserByEmail(email);
             responseBody.put("message", "User with email '" + email + "' fetched successfully");
-            responseBody.put("user", userDto);
-            return new ResponseEntity<>(responseBody, HttpStatus.OK);
+            responseBody.put("user", user);
+            // Spring answers a matching If-None-Match with 304 and skips serializing the body
+            return ResponseEntity.ok().eTag(UserETags.of(user)).body(responseBody);
         } catch (ResourceNotFoundException e) {
             responseBody.put("message", e.getMessage());
             return new ResponseEntity<>(responseBody, HttpStatus.NOT_FOUND);
@@ -105,39 +199,58 @@ public class UserController {
         Map<String, Object> responseBody = new HashMap<>();
 
         try {
-            UserDto userDto = userService.findUserByUsername(username);
+            UserResponse user = userService.findUserByUsername(username);
             responseBody.put("message", "User with username '" + username + "' fetched successfully");
-            responseBody.put("user", userDto);
-            return new ResponseEntity<>(responseBody, HttpStatus.OK);
+            responseBody.put("user", user);
+            return ResponseEntity.ok().eTag(UserETags.of(user)).body(responseBody);
         } catch (ResourceNotFoundException e) {
             responseBody.put("message", e.getMessage());
             return new ResponseEntity<>(responseBody, HttpStatus.NOT_FOUND);
         }
     }
 
-    // Get all users
+    // Get all users, one page at a time; pass the returned nextCursor to fetch the following page
     @GetMapping("/all")
-    public ResponseEntity<Map<String, Object>> getAllUsers() {
+    public ResponseEntity<Map<String, Object>> getAllUsers(@RequestParam(value = "cursor", required = false) String cursor,
+                                                           @RequestParam(value = "size", required = false) Integer size) {
         Map<String, Object> responseBody = new HashMap<>();
-        List<UserDto> users = userService.getAllUsers();
+        UserPage page = userService.getUsersPage(cursor, size);
         responseBody.put("message", "All users fetched successfully");
-        responseBody.put("users", users);
+        responseBody.put("users", page.users());
+        responseBody.put("nextCursor", page.nextCursor());
         return new ResponseEntity<>(responseBody, HttpStatus.OK);
     }
 
+    // Export every user as newline-delimited JSON, written while the rows are read
+    @GetMapping("/all/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        StreamingResponseBody body = outputStream -> {
+            try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(outputStream)) {
+                userService.forEachUser(user -> {
+                    try {
+                        writer.write(user);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<?> deleteUser(@PathVariable("id") Long id) {
         Map<String, Object> responseBody = new HashMap<>();
 
         try {
             // Find the user by ID
-            UserDto user = userService.findUserById(id);
+            UserResponse user = userService.findUserById(id);
 
             // Perform the deletion
             userService.deleteUser(id);
 
             // Prepare the response body
-            String successMessage = "User '" + user.getUsername() + "' deleted successfully";
+            String successMessage = "User '" + user.username() + "' deleted successfully";
             responseBody.put("message", successMessage);
             return new ResponseEntity<>(responseBody, HttpStatus.OK);
         } catch (ResourceNotFoundException e) {
@@ -149,6 +262,21 @@ public class UserController {
 
 
 
+    // Revoke every token issued to a user so far
+    @PostMapping("/revoke-tokens/{id}")
+    public ResponseEntity<?> revokeTokens(@PathVariable("id") Long id) {
+        Map<String, Object> responseBody = new HashMap<>();
+
+        try {
+            userService.revokeTokens(id);
+            responseBody.put("message", "Tokens of user with id " + id + " revoked successfully");
+            return new ResponseEntity<>(responseBody, HttpStatus.OK);
+        } catch (ResourceNotFoundException e) {
+            responseBody.put("message", e.getMessage());
+            return new ResponseEntity<>(responseBody, HttpStatus.NOT_FOUND);
+        }
+    }
+
     // Authenticate user
     @PostMapping("/login")
     public ResponseEntity<?> authenticateUser(@RequestParam String identifier, @RequestParam String password) {
@@ -158,9 +286,70 @@ public class UserController {
 
     // Upload profile picture
     @PostMapping("/upload-profile-picture/{id}")
-    public ResponseEntity<?> uploadProfilePicture(@PathVariable("id") int id, @RequestParam("file") MultipartFile file) {
-        userService.updateUserProfilePicture(id, file); // Assuming service handles this method
-        return new ResponseEntity<>("Profile picture uploaded successfully", HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<?>> uploadProfilePicture(@PathVariable("id") int id, @RequestParam("file") MultipartFile file) {
+        return userService.updateUserProfilePicture(id, file)
+                .thenApply(ignored -> new ResponseEntity<>("Profile picture uploaded successfully", HttpStatus.OK));
+    }
+
+    // Serve a stored profile picture, or with ?size= one of its resized variants. Range requests and containers without sendfile are handled by Spring's
+    // Resource support; Spring also answers If-None-Match with 304 from the ETag set on the ResponseEntity
+    @GetMapping("/profile-picture/{fileName}")
+    public ResponseEntity<Resource> getProfilePicture(@PathVariable("fileName") String fileName,
+                                                      @RequestParam(value = "size", required = false) Integer size,
+                                                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Resource picture = userService.loadProfilePicture(fileName, size).orElse(null);
+        if (picture == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // The name is the content digest, so it makes a strong validator without reading the file
+        String digest = StringUtils.stripFilenameExtension(fileName);
+        String etag = "\"" + (size == null ? digest : digest + "-" + size) + "\"";
+        // Only the picture formats are rendered inline; any other stored file, e.g. one uploaded before uploads were
+        // checked, is offered as a download so it cannot run as a page on the API's origin
+        MediaType imageType = ProfilePictureFormats.mediaTypeOf(fileName).orElse(null);
+        MediaType contentType = imageType != null ? imageType : MediaType.APPLICATION_OCTET_STREAM;
+        String contentDisposition = imageType != null ? null : ContentDisposition.attachment().build().toString();
+        response.setHeader(NOSNIFF_HEADER, "nosniff");
+
+        if (isSendfileCandidate(request, picture)) {
+            if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, PROFILE_PICTURE_CACHE.getHeaderValue());
+                return null;
+            }
+            File file = picture.getFile();
+            long length = file.length();
+            response.setContentType(contentType.toString());
+            response.setContentLengthLong(length);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, PROFILE_PICTURE_CACHE.getHeaderValue());
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            if (contentDisposition != null) {
+                response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+            }
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.getAbsolutePath());
+            request.setAttribute(SENDFILE_START_ATTR, 0L);
+            request.setAttribute(SENDFILE_END_ATTR, length);
+            // Body and headers are already set up for the container; Spring must not write anything else
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .contentType(contentType)
+                .eTag(etag)
+                .cacheControl(PROFILE_PICTURE_CACHE);
+        if (contentDisposition != null) {
+            ok.header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+        }
+        return ok.body(picture);
+    }
+
+    // Whole-file GETs on a connector that supports sendfile; ranges and HEAD go through Spring
+    private static boolean isSendfileCandidate(HttpServletRequest request, Resource picture) {
+        return "GET".equals(request.getMethod())
+                && request.getHeader(HttpHeaders.RANGE) == null
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))
+                && picture.isFile();
     }
 
     // Utility method to handle errors
@@ -0,0 +1,45 @@
+package com.pulse.api.controller;
+
+import com.pulse.api.dto.UserResponse;
+
+/**
+ * Entity tags of a user's representation: {@code "<id>-<version>"}. The version changes with every update, so the
+ * tag can be compared without loading or serializing the user. The id keeps tags from different users apart on the
+ * username and email endpoints, whose URL may point to another user after a rename. Public for pulse-api-reactive,
+ * which serves the same lookups and has to issue the same tags.
+ */
+public final class UserETags {
+
+    // Matches no version, for an If-Match naming another user or a tag this API never issued
+    static final long NO_VERSION = -1L;
+
+    private UserETags() {
+    }
+
+    // Null for a user that has no version yet
+    public static String of(Long id, Long version) {
+        return version == null ? null : "\"" + id + "-" + version + "\"";
+    }
+
+    public static String of(UserResponse user) {
+        return of(user.id(), user.version());
+    }
+
+    // The version an If-Match header requires, or null when there is no precondition. A single tag, as returned by a
+    // previous response, is expected; If-Match uses strong comparison, so weak tags never match
+    static Long requiredVersion(Long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        String prefix = "\"" + id + "-";
+        if (!tag.startsWith(prefix) || !tag.endsWith("\"") || tag.length() <= prefix.length() + 1) {
+            return NO_VERSION;
+        }
+        try {
+            return Long.parseLong(tag.substring(prefix.length(), tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return NO_VERSION;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.pulse.api.dto;
+
+// How many users already hold each of a new user's unique values
+public record UserConflicts(long usernames, long emails, long phones) {
+
+    public static final UserConflicts NONE = new UserConflicts(0, 0, 0);
+
+    public boolean usernameTaken() {
+        return usernames > 0;
+    }
+
+    public boolean emailTaken() {
+        return emails > 0;
+    }
+
+    public boolean phoneTaken() {
+        return phones > 0;
+    }
+}
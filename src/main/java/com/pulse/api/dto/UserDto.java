@@ -14,6 +14,7 @@ import lombok.NoArgsConstructor;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.Set;
 
 @Data
@@ -58,6 +59,9 @@ public class UserDto {
 
     private String profilePictureUrl;
 
+    // Variant size in pixels to the URL of the picture scaled to fit that size
+    private Map<Integer, String> profilePictureVariants;
+
     private String bio;
 
     private Set<RoleName> roles;
@@ -0,0 +1,21 @@
+package com.pulse.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Outcome of one imported row; row is 1-based in the order the rows were submitted
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserImportResult(int row, String username, Status status, Long id, String error) {
+
+    public enum Status {
+        CREATED,
+        REJECTED
+    }
+
+    public static UserImportResult created(int row, String username, Long id) {
+        return new UserImportResult(row, username, Status.CREATED, id, null);
+    }
+
+    public static UserImportResult rejected(int row, String username, String error) {
+        return new UserImportResult(row, username, Status.REJECTED, null, error);
+    }
+}
@@ -0,0 +1,23 @@
+package com.pulse.api.dto;
+
+import com.pulse.api.enums.Gender;
+import com.pulse.api.enums.RelationshipStatus;
+import com.pulse.api.enums.RoleName;
+
+import java.util.Set;
+
+// One user of a bulk import; the same fields as UserDto, without the profile picture
+public record UserImportRow(
+        String firstName,
+        String middleName,
+        String lastName,
+        String username,
+        String email,
+        String password,
+        String phone,
+        String country,
+        Gender gender,
+        RelationshipStatus relationshipStatus,
+        String bio,
+        Set<RoleName> roles) {
+}
@@ -0,0 +1,9 @@
+package com.pulse.api.dto;
+
+import java.util.List;
+
+/**
+ * One keyset page of users; {@code nextCursor} is an opaque token for the following page, or null on the last page.
+ */
+public record UserPage(List<UserResponse> users, String nextCursor) {
+}
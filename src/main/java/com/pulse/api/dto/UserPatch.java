@@ -0,0 +1,23 @@
+package com.pulse.api.dto;
+
+import com.pulse.api.enums.Gender;
+import com.pulse.api.enums.RelationshipStatus;
+import com.pulse.api.enums.RoleName;
+
+import java.util.Set;
+
+// Body of PATCH /api/users/update/{id}: fields left out (or null) keep their current value. Password and profile
+// picture have their own flows and cannot be patched
+public record UserPatch(
+        String firstName,
+        String middleName,
+        String lastName,
+        String username,
+        String email,
+        String phone,
+        String country,
+        Gender gender,
+        RelationshipStatus relationshipStatus,
+        String bio,
+        Set<RoleName> roles) {
+}
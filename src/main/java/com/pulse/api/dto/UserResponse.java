@@ -0,0 +1,80 @@
+package com.pulse.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.pulse.api.enums.Gender;
+import com.pulse.api.enums.RelationshipStatus;
+import com.pulse.api.enums.RoleName;
+import com.pulse.api.model.User;
+import com.pulse.api.storage.ProfilePictureUrls;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * User as returned by the read endpoints. Unlike {@link UserDto} it carries no password, upload or validation state.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserResponse(
+        Long id,
+        String firstName,
+        String middleName,
+        String lastName,
+        String username,
+        String email,
+        String phone,
+        String country,
+        Gender gender,
+        RelationshipStatus relationshipStatus,
+        String profilePictureUrl,
+        Map<Integer, String> profilePictureVariants,
+        String bio,
+        Set<RoleName> roles,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        // Changes with every update of the user; the read endpoints derive their ETag from it
+        Long version) {
+
+    public static UserResponse from(UserView view) {
+        return new UserResponse(
+                view.getId(),
+                view.getFirstName(),
+                view.getMiddleName(),
+                view.getLastName(),
+                view.getUsername(),
+                view.getEmail(),
+                view.getPhone(),
+                view.getCountry(),
+                view.getGender(),
+                view.getRelationshipStatus(),
+                ProfilePictureUrls.original(view.getProfilePicture()),
+                ProfilePictureUrls.variants(view.getProfilePicture()),
+                view.getBio(),
+                view.getRoles(),
+                view.getCreatedAt(),
+                view.getUpdatedAt(),
+                view.getVersion());
+    }
+
+    // Same fields for a user loaded as an entity, such as one served from the second-level cache
+    public static UserResponse from(User user) {
+        return new UserResponse(
+                user.getId(),
+                user.getFirstName(),
+                user.getMiddleName(),
+                user.getLastName(),
+                user.getUsername(),
+                user.getEmail(),
+                user.getPhone(),
+                user.getCountry(),
+                user.getGender(),
+                user.getRelationshipStatus(),
+                ProfilePictureUrls.original(user.getProfilePicture()),
+                ProfilePictureUrls.variants(user.getProfilePicture()),
+                user.getBio(),
+                RoleName.fromMask(user.getRoleMask()),
+                user.getCreatedAt(),
+                user.getUpdatedAt(),
+                user.getVersion());
+    }
+}
@@ -0,0 +1,47 @@
+package com.pulse.api.dto;
+
+import com.pulse.api.enums.Gender;
+import com.pulse.api.enums.RelationshipStatus;
+import com.pulse.api.enums.RoleName;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Closed projection of {@link com.pulse.api.model.User} for read endpoints: queries returning it select only these
+ * columns, never the password hash, and the rows are not tracked by the persistence context.
+ */
+public interface UserView {
+
+    Long getId();
+
+    String getFirstName();
+
+    String getMiddleName();
+
+    String getLastName();
+
+    String getUsername();
+
+    String getEmail();
+
+    String getPhone();
+
+    String getCountry();
+
+    Gender getGender();
+
+    RelationshipStatus getRelationshipStatus();
+
+    String getProfilePicture();
+
+    String getBio();
+
+    Set<RoleName> getRoles();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+
+    Long getVersion();
+}
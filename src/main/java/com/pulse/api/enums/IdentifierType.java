@@ -0,0 +1,24 @@
+package com.pulse.api.enums;
+
+public enum IdentifierType {
+
+    USERNAME,
+    EMAIL,
+    PHONE;
+
+    // Emails always contain '@' and phone numbers are all digits; anything else can only be a username
+    public static IdentifierType classify(String identifier) {
+        if (identifier.indexOf('@') >= 0) {
+            return EMAIL;
+        }
+        if (identifier.isEmpty()) {
+            return USERNAME;
+        }
+        for (int i = 0; i < identifier.length(); i++) {
+            if (!Character.isDigit(identifier.charAt(i))) {
+                return USERNAME;
+            }
+        }
+        return PHONE;
+    }
+}
@@ -0,0 +1,45 @@
+package com.pulse.api.enums;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable authority lists for every combination of {@link RoleName}s, built once and indexed by role bitmask, so
+ * request handling looks them up instead of allocating new authorities.
+ */
+public final class RoleAuthorities {
+
+    private static final List<List<GrantedAuthority>> BY_MASK;
+
+    static {
+        RoleName[] roles = RoleName.values();
+        List<GrantedAuthority> single = new ArrayList<>(roles.length);
+        for (RoleName role : roles) {
+            single.add(new SimpleGrantedAuthority(role.authority()));
+        }
+
+        int allMask = RoleName.allMask();
+        List<List<GrantedAuthority>> byMask = new ArrayList<>(allMask + 1);
+        for (int mask = 0; mask <= allMask; mask++) {
+            List<GrantedAuthority> authorities = new ArrayList<>(Integer.bitCount(mask));
+            for (int i = 0; i < roles.length; i++) {
+                if ((mask & roles[i].mask()) != 0) {
+                    authorities.add(single.get(i));
+                }
+            }
+            byMask.add(List.copyOf(authorities));
+        }
+        BY_MASK = List.copyOf(byMask);
+    }
+
+    private RoleAuthorities() {
+    }
+
+    // Bits that do not belong to a known role are ignored
+    public static List<GrantedAuthority> forMask(int mask) {
+        return BY_MASK.get(mask & RoleName.allMask());
+    }
+}
@@ -1,7 +1,69 @@
 package com.pulse.api.enums;
 
+import java.util.Collection;
+import java.util.EnumSet;
+
 public enum RoleName {
 
-    ADMIN,
-    NORMAL
+    // The bit is persisted in users.role_mask: give new roles the next free bit and never reuse one
+    ADMIN(0),
+    NORMAL(1);
+
+    private static final RoleName[] VALUES = values();
+    private static final int ALL_MASK = toMask(EnumSet.allOf(RoleName.class));
+
+    private final int mask;
+    private final String authority;
+
+    RoleName(int bit) {
+        this.mask = 1 << bit;
+        this.authority = "ROLE_" + name();
+    }
+
+    public int mask() {
+        return mask;
+    }
+
+    // Spring Security authority name, as produced by User.withUsername(..).roles(..)
+    public String authority() {
+        return authority;
+    }
+
+    public static int toMask(Collection<RoleName> roles) {
+        int mask = 0;
+        if (roles != null) {
+            for (RoleName role : roles) {
+                mask |= role.mask;
+            }
+        }
+        return mask;
+    }
+
+    public static EnumSet<RoleName> fromMask(int mask) {
+        EnumSet<RoleName> roles = EnumSet.noneOf(RoleName.class);
+        for (RoleName role : VALUES) {
+            if ((mask & role.mask) != 0) {
+                roles.add(role);
+            }
+        }
+        return roles;
+    }
+
+    // Mask of the roles named by authority strings such as "ROLE_ADMIN"; unknown names are ignored
+    public static int maskOfAuthorities(Collection<String> authorities) {
+        int mask = 0;
+        for (String authority : authorities) {
+            for (RoleName role : VALUES) {
+                if (role.authority.equals(authority)) {
+                    mask |= role.mask;
+                    break;
+                }
+            }
+        }
+        return mask;
+    }
+
+    public static int allMask() {
+        return ALL_MASK;
+    }
 }
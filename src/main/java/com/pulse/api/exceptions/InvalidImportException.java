@@ -0,0 +1,7 @@
+package com.pulse.api.exceptions;
+
+public class InvalidImportException extends RuntimeException {
+    public InvalidImportException(String message) {
+        super(message);
+    }
+}
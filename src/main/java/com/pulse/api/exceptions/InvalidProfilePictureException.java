@@ -0,0 +1,7 @@
+package com.pulse.api.exceptions;
+
+public class InvalidProfilePictureException extends RuntimeException {
+    public InvalidProfilePictureException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.pulse.api.exceptions;
+
+public class InvalidUserUpdateException extends RuntimeException {
+    public InvalidUserUpdateException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.pulse.api.exceptions;
+
+public class StorageException extends RuntimeException {
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package com.pulse.api.exceptions;
+
+public class UserVersionMismatchException extends RuntimeException {
+    public UserVersionMismatchException(String message) {
+        super(message);
+    }
+}
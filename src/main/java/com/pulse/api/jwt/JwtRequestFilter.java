@@ -1,7 +1,9 @@
 package com.pulse.api.jwt;
 
+import com.pulse.api.enums.RoleAuthorities;
 import com.pulse.api.utils.CustomCustomerDetailsService;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,19 +11,19 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
 
 import java.io.IOException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
@@ -32,7 +34,17 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     CustomCustomerDetailsService userDetailsService;
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private TokenVersionChecker tokenVersionChecker;
+
+    // When enabled, the Authentication is built from the verified claims alone, without a per-request user load
+    @Value("${jwt.stateless.enabled:false}")
+    private boolean stateless;
+
+    @Value("${jwt.stateless.version-check:true}")
+    private boolean versionCheck;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
@@ -40,33 +52,26 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         final String requestTokenHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwtToken = null;
+        VerifiedToken token = null;
 
         if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
-            jwtToken = requestTokenHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwtToken);
-            } catch (IllegalArgumentException e) {
-                logger.warn("Unable to get JWT Token");
+                // Signature, expiry and claims are all checked by a single parse, or reused from an earlier one
+                token = verifiedTokenCache.verify(requestTokenHeader.substring(7));
             } catch (ExpiredJwtException e) {
                 logger.warn("JWT Token has expired");
+            } catch (JwtException | IllegalArgumentException e) {
+                logger.warn("Unable to get JWT Token");
             }
         } else {
             logger.warn("JWT Token does not begin with Bearer String");
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            if (jwtUtil.validateToken(jwtToken, userDetails.getUsername())) {
-                // Get roles from token and explicitly define the type
-                List<String> roles = jwtUtil.extractClaim(jwtToken, claims -> claims.get("roles", List.class));
-
-                // Map roles to SimpleGrantedAuthority
-                List<GrantedAuthority> authorities = roles.stream()
-                        .map(SimpleGrantedAuthority::new) // Ensure you have the correct import
-                        .collect(Collectors.toList());
-
+        if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // Map the roles signed into the token to their precomputed authorities
+            List<GrantedAuthority> authorities = RoleAuthorities.forMask(token.getRoleMask());
+            UserDetails userDetails = stateless ? statelessPrincipal(token, authorities) : loadPrincipal(token);
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
                         new UsernamePasswordAuthenticationToken(userDetails, null, authorities);
 
@@ -77,4 +82,31 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         chain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private UserDetails loadPrincipal(VerifiedToken token) {
+        // Revocation is always enforced here; only stateless mode may opt out of it
+        if (isRevoked(token)) {
+            return null;
+        }
+        UserDetails userDetails = this.userDetailsService.loadUserByUsername(token.getSubject());
+        return token.getSubject().equals(userDetails.getUsername()) ? userDetails : null;
+    }
+
+    private UserDetails statelessPrincipal(VerifiedToken token, List<GrantedAuthority> authorities) {
+        if (versionCheck && isRevoked(token)) {
+            return null;
+        }
+        return User.withUsername(token.getSubject())
+                .password("")
+                .authorities(authorities)
+                .build();
+    }
+
+    private boolean isRevoked(VerifiedToken token) {
+        if (tokenVersionChecker.isCurrent(token)) {
+            return false;
+        }
+        logger.warn("JWT Token has been revoked");
+        return true;
+    }
+}
@@ -1,12 +1,16 @@
 package com.pulse.api.jwt;
 
 
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.impl.TextCodec;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import io.jsonwebtoken.Claims;
 
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -17,8 +21,29 @@ import java.util.function.Function;
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String SECRET_KEY;
+    static final String TOKEN_VERSION_CLAIM = "ver";
+
+    private static final long EXPIRATION_MILLIS = 1000 * 60 * 60 * 10;
+
+    private final Key signingKey;
+
+    // The parser is immutable once configured, so one instance (and its ObjectMapper) is shared by all requests
+    private final JwtParser parser;
+
+    public JwtUtil(@Value("${jwt.secret}") String secretKey) {
+        // jjwt Base64-decodes String keys on every call; decode once up front
+        this.signingKey = new SecretKeySpec(TextCodec.BASE64.decode(secretKey), SignatureAlgorithm.HS256.getJcaName());
+        this.parser = Jwts.parser().setSigningKey(signingKey);
+    }
+
+    /**
+     * Checks the signature and expiry of the token and decodes it in a single pass.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, tampered with or expired
+     */
+    public VerifiedToken verify(String token) {
+        return VerifiedToken.from(extractAllClaims(token));
+    }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -34,7 +59,7 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
     private Boolean isTokenExpired(String token) {
@@ -42,20 +67,26 @@ public class JwtUtil {
     }
 
     public String generateToken(String username, List<String> roles) {
+        return generateToken(username, roles, 0);
+    }
+
+    public String generateToken(String username, List<String> roles, int tokenVersion) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("roles", roles);
+        claims.put(TOKEN_VERSION_CLAIM, tokenVersion);
         return createToken(claims, username);
     }
 
 
     private String createToken(Map<String, Object> claims, String subject) {
-        return Jwts.builder().setClaims(claims).setSubject(subject).setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 10))
-                .signWith(SignatureAlgorithm.HS256, SECRET_KEY).compact();
+        long now = System.currentTimeMillis();
+        return Jwts.builder().setClaims(claims).setSubject(subject).setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + EXPIRATION_MILLIS))
+                .signWith(SignatureAlgorithm.HS256, signingKey).compact();
     }
 
     public Boolean validateToken(String token, String username) {
         final String extractedUsername = extractUsername(token);
         return (extractedUsername.equals(username) && !isTokenExpired(token));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+package com.pulse.api.jwt;
+
+import com.pulse.api.repo.UserRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Revocation check for stateless authentication: a token is only honoured while its "ver" claim still matches the
+ * user's token version, which costs one indexed single-column lookup instead of a full user load.
+ */
+@Component
+public class TokenVersionChecker {
+
+    private final UserRepo userRepo;
+
+    @Autowired
+    public TokenVersionChecker(UserRepo userRepo) {
+        this.userRepo = userRepo;
+    }
+
+    public int currentVersion(String username) {
+        return userRepo.findTokenVersionByUsername(username).orElse(0);
+    }
+
+    public boolean isCurrent(VerifiedToken token) {
+        // A deleted user has no version row, so their tokens are rejected as well
+        return userRepo.findTokenVersionByUsername(token.getSubject())
+                .map(version -> version == token.getTokenVersion())
+                .orElse(false);
+    }
+}
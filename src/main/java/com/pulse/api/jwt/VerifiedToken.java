@@ -0,0 +1,62 @@
+package com.pulse.api.jwt;
+
+import com.pulse.api.enums.RoleName;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.MalformedJwtException;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Immutable view of a JWT whose signature and expiry have already been checked by {@link JwtUtil#verify(String)}.
+ */
+@Getter
+public final class VerifiedToken {
+    private final String subject;
+    private final List<String> roles;
+    // Bitmask of the known RoleName authorities among the roles, decoded once per token
+    private final int roleMask;
+    private final Instant issuedAt;
+    private final Instant expiration;
+    private final int tokenVersion;
+
+    public VerifiedToken(String subject, List<String> roles, Instant issuedAt, Instant expiration, int tokenVersion) {
+        this.subject = subject;
+        this.roles = Collections.unmodifiableList(new ArrayList<>(roles));
+        this.roleMask = RoleName.maskOfAuthorities(roles);
+        this.issuedAt = issuedAt;
+        this.expiration = expiration;
+        this.tokenVersion = tokenVersion;
+    }
+
+    static VerifiedToken from(Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (claims.getSubject() == null || expiration == null) {
+            throw new MalformedJwtException("JWT is missing its subject or expiration");
+        }
+
+        List<?> rawRoles = claims.get("roles", List.class);
+        List<String> roles = new ArrayList<>(rawRoles == null ? 0 : rawRoles.size());
+        if (rawRoles != null) {
+            for (Object role : rawRoles) {
+                roles.add(String.valueOf(role));
+            }
+        }
+
+        // Tokens issued before versioning carry no "ver" claim and count as version 0
+        Integer tokenVersion = claims.get(JwtUtil.TOKEN_VERSION_CLAIM, Integer.class);
+
+        Date issuedAt = claims.getIssuedAt();
+        return new VerifiedToken(claims.getSubject(), roles,
+                issuedAt == null ? null : issuedAt.toInstant(), expiration.toInstant(),
+                tokenVersion == null ? 0 : tokenVersion);
+    }
+
+    public boolean isExpired(Instant now) {
+        return !expiration.isAfter(now);
+    }
+}
@@ -0,0 +1,128 @@
+package com.pulse.api.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Remembers tokens that already passed {@link JwtUtil#verify(String)} so a bearer token presented many times during
+ * its lifetime is only signature-checked once.
+ * <p>
+ * Entries are keyed by a 128-bit SHA-256 digest of the token and live until the token's own expiry or the configured
+ * maximum age, whichever comes first. Only successfully verified tokens are stored, so random or forged tokens never
+ * occupy space, and the cache is additionally capped at a fixed number of entries.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final JwtUtil jwtUtil;
+    private final boolean enabled;
+    private final Cache<TokenDigest, VerifiedToken> cache;
+
+    public VerifiedTokenCache(JwtUtil jwtUtil, MeterRegistry meterRegistry,
+                              @Value("${jwt.cache.enabled:true}") boolean enabled,
+                              @Value("${jwt.cache.maximum-size:10000}") long maximumSize,
+                              @Value("${jwt.cache.max-age:15m}") Duration maxAge) {
+        this.jwtUtil = jwtUtil;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry(maxAge))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified-tokens");
+    }
+
+    /**
+     * Same contract as {@link JwtUtil#verify(String)}, answered from the cache when the token was verified before.
+     */
+    public VerifiedToken verify(String token) {
+        if (!enabled) {
+            return jwtUtil.verify(token);
+        }
+
+        TokenDigest key = TokenDigest.of(token);
+        VerifiedToken cached = cache.getIfPresent(key);
+        // Eviction is asynchronous, so never trust an entry past the token's own expiry
+        if (cached != null && !cached.isExpired(Instant.now())) {
+            return cached;
+        }
+
+        VerifiedToken verified = jwtUtil.verify(token);
+        cache.put(key, verified);
+        return verified;
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    record TokenDigest(long high, long low) {
+
+        private static final MessageDigest SHA_256;
+
+        static {
+            try {
+                SHA_256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        static TokenDigest of(String token) {
+            MessageDigest digest;
+            try {
+                // Cloning the prototype is cheaper than a provider lookup per call
+                digest = (MessageDigest) SHA_256.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException("SHA-256 digest is not cloneable", e);
+            }
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+            return new TokenDigest(hash.getLong(), hash.getLong());
+        }
+    }
+
+    private static final class TokenExpiry implements Expiry<TokenDigest, VerifiedToken> {
+
+        private final Duration maxAge;
+
+        TokenExpiry(Duration maxAge) {
+            this.maxAge = maxAge;
+        }
+
+        @Override
+        public long expireAfterCreate(TokenDigest key, VerifiedToken token, long currentTime) {
+            Duration untilExpiry = Duration.between(Instant.now(), token.getExpiration());
+            if (untilExpiry.isNegative()) {
+                return 0;
+            }
+            return untilExpiry.compareTo(maxAge) < 0 ? untilExpiry.toNanos() : maxAge.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, VerifiedToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.pulse.api.model;
+
+import com.pulse.api.enums.RoleName;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Set;
+
+/**
+ * Stores a user's roles as a single integer bitmask (see {@link RoleName#mask()}) instead of a join table.
+ */
+@Converter
+public class RoleSetConverter implements AttributeConverter<Set<RoleName>, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(Set<RoleName> roles) {
+        return RoleName.toMask(roles);
+    }
+
+    @Override
+    public Set<RoleName> convertToEntityAttribute(Integer mask) {
+        return RoleName.fromMask(mask == null ? 0 : mask);
+    }
+}
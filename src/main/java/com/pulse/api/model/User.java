@@ -8,20 +8,54 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.time.LocalDateTime;
-import java.util.HashSet;
+import java.util.EnumSet;
 import java.util.Set;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "users")
+// Roles live in the role_mask column, so the entity entry already carries them; there is no collection to cache
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@NaturalIdCache(region = User.USERNAME_CACHE_REGION)
+// UPDATE statements list only the columns that changed, so a partial update does not rewrite the whole row
+@DynamicUpdate
+@Table(name = "users",
+        indexes = @Index(name = "idx_users_profile_picture", columnList = "profilePicture"),
+        uniqueConstraints = {
+                @UniqueConstraint(name = User.USERNAME_CONSTRAINT, columnNames = "username"),
+                @UniqueConstraint(name = User.EMAIL_CONSTRAINT, columnNames = "email"),
+                @UniqueConstraint(name = User.PHONE_CONSTRAINT, columnNames = "phone")
+        })
 public class User {
 
+    public static final String ID_SEQUENCE = "users_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Named so a violation can be traced back to the field that caused it
+    public static final String USERNAME_CONSTRAINT = "uk_users_username";
+    public static final String EMAIL_CONSTRAINT = "uk_users_email";
+    public static final String PHONE_CONSTRAINT = "uk_users_phone";
+
+    // Second-level cache regions: users by id, username to id, and the cached email to id query
+    public static final String CACHE_REGION = "users";
+    public static final String USERNAME_CACHE_REGION = "users-by-username";
+    public static final String EMAIL_QUERY_CACHE_REGION = "users-by-email";
+
+    // Sequence ids are known before the insert, so Hibernate can batch inserts; the pooled optimizer takes
+    // ID_ALLOCATION_SIZE ids per round trip to the sequence
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     private String firstName;
@@ -30,10 +64,10 @@ public class User {
 
     private String lastName;
 
-    @Column(unique = true)
+    // Hibernate allows a single natural id per entity; lookups by email go through a cached query instead
+    @NaturalId(mutable = true)
     private String username;
 
-    @Column(unique = true)
     private String email;
 
     private String password;
@@ -48,6 +82,7 @@ public class User {
     @Enumerated(EnumType.STRING)
     private RelationshipStatus relationshipStatus;
 
+    // Content-addressed file name in the ProfilePictureStore; files no user points to are garbage-collected
     private String profilePicture;
 
     private String bio;
@@ -59,9 +94,27 @@ public class User {
     private LocalDateTime updatedAt;
 
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @Enumerated(EnumType.STRING)
-    private Set<RoleName> roles = new HashSet<>(); // Use RoleName enum
+    // Persisted as one integer bitmask column, so loading a user needs no join or second select for its roles
+    @Convert(converter = RoleSetConverter.class)
+    @ColumnDefault("0")
+    @Column(name = "role_mask", nullable = false)
+    private Set<RoleName> roles = EnumSet.noneOf(RoleName.class); // Use RoleName enum
+
+    // Signed into issued tokens as the "ver" claim; bumping it revokes every outstanding token of the user
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Integer tokenVersion = 0;
+
+    // Optimistic lock: every UPDATE checks and increments it, so concurrent edits cannot silently overwrite each other.
+    // Also the ETag of the user's representation. Null until the user is first saved, which marks the entity as new
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
+    public int getRoleMask() {
+        return RoleName.toMask(roles);
+    }
 
     @PrePersist
     public void prePersist() {
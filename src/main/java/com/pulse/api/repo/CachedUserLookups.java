@@ -0,0 +1,23 @@
+package com.pulse.api.repo;
+
+import com.pulse.api.model.User;
+
+import java.util.Optional;
+
+/**
+ * User loads answered from the second-level cache when possible. Queries on {@link UserRepo} always reach the
+ * database, even for entities that are cached.
+ */
+public interface CachedUserLookups {
+
+    Optional<User> findCachedById(Long id);
+
+    // Resolved through the username natural-id cache, then the entity cache
+    Optional<User> findCachedByUsername(String username);
+
+    // Resolved through a cached email to id query, then the entity cache
+    Optional<User> findCachedByEmail(String email);
+
+    // Version of the user, read from the entity cache or else as a single column, without loading the user
+    Optional<Long> findCachedVersionById(Long id);
+}
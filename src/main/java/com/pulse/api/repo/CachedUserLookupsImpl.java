@@ -0,0 +1,56 @@
+package com.pulse.api.repo;
+
+import com.pulse.api.model.User;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Transactional(readOnly = true)
+class CachedUserLookupsImpl implements CachedUserLookups {
+
+    private final EntityManager entityManager;
+
+    @Autowired
+    CachedUserLookupsImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Optional<User> findCachedById(Long id) {
+        return Optional.ofNullable(entityManager.find(User.class, id));
+    }
+
+    @Override
+    public Optional<User> findCachedByUsername(String username) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(User.class)
+                .loadOptional(username);
+    }
+
+    @Override
+    public Optional<User> findCachedByEmail(String email) {
+        // The cached result is dropped whenever the users table changes, so a new or re-addressed user is found
+        List<Long> ids = entityManager.createQuery("select u.id from User u where u.email = :email", Long.class)
+                .setParameter("email", email)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .setHint(HibernateHints.HINT_CACHE_REGION, User.EMAIL_QUERY_CACHE_REGION)
+                .getResultList();
+        return ids.isEmpty() ? Optional.empty() : findCachedById(ids.get(0));
+    }
+
+    @Override
+    public Optional<Long> findCachedVersionById(Long id) {
+        if (entityManager.getEntityManagerFactory().getCache().contains(User.class, id)) {
+            return findCachedById(id).map(User::getVersion);
+        }
+        return entityManager.createQuery("select u.version from User u where u.id = :id", Long.class)
+                .setParameter("id", id)
+                .getResultStream()
+                .findFirst();
+    }
+}
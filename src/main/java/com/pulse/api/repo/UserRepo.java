@@ -1,12 +1,33 @@
 package com.pulse.api.repo;
 
-import com.pulse.api.dto.UserDto;
+import com.pulse.api.dto.UserConflicts;
+import com.pulse.api.dto.UserView;
 import com.pulse.api.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public interface UserRepo extends JpaRepository<User, Integer>, CachedUserLookups {
+    int STREAM_FETCH_SIZE = 500;
+
+    // Select list of the UserView projection; aliases must match its getter names
+    String USER_VIEW_SELECT = "select u.id as id, u.firstName as firstName, u.middleName as middleName, u.lastName as lastName, "
+            + "u.username as username, u.email as email, u.phone as phone, u.country as country, u.gender as gender, "
+            + "u.relationshipStatus as relationshipStatus, u.profilePicture as profilePicture, u.bio as bio, "
+            + "u.roles as roles, u.createdAt as createdAt, u.updatedAt as updatedAt, u.version as version from User u ";
 
-public interface UserRepo extends JpaRepository<User, Integer> {
     // Method to find a user by username
     Optional<User> findByUsername(String username);
 
@@ -22,9 +43,73 @@ public interface UserRepo extends JpaRepository<User, Integer> {
 
     boolean existsByPhone(String phone);
 
+    // Which of a new user's unique values are taken, in one round trip; a null phone never conflicts
+    @Transactional(readOnly = true)
+    @Query("select new com.pulse.api.dto.UserConflicts("
+            + "count(case when u.username = :username then 1 end), "
+            + "count(case when u.email = :email then 1 end), "
+            + "count(case when u.phone = :phone then 1 end)) "
+            + "from User u where u.username = :username or u.email = :email or u.phone = :phone")
+    UserConflicts findConflicts(@Param("username") String username, @Param("email") String email,
+                                @Param("phone") String phone);
+
     Optional<User> findByUsernameOrEmail(String identifier, String identifier1);
 
     Optional<User>  findById(long id);
 
+    // Login lookups: one round trip (roles live in users.role_mask), served by the username/email/phone unique indexes
+    @Query("select u from User u where u.username = :identifier or u.email = :identifier")
+    List<User> findCandidatesByUsernameOrEmail(@Param("identifier") String identifier);
+
+    @Query("select u from User u where u.username = :identifier or u.phone = :identifier")
+    List<User> findCandidatesByUsernameOrPhone(@Param("identifier") String identifier);
+
+    // Single-column lookup used to check token revocation without loading the user
+    @Query("select u.tokenVersion from User u where u.username = :username")
+    Optional<Integer> findTokenVersionByUsername(@Param("username") String username);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.tokenVersion = u.tokenVersion + 1 where u.id = :id")
+    int incrementTokenVersion(@Param("id") Long id);
+
+    @Query("select u.id from User u where u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :password where u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
+
+    // Which of the given stored profile picture names some user still points to
+    @Transactional(readOnly = true)
+    @Query("select distinct u.profilePicture from User u where u.profilePicture in :fileNames")
+    Set<String> findReferencedProfilePictures(@Param("fileNames") Collection<String> fileNames);
+
+    // Set-based uniqueness checks for bulk imports: one query per chunk of candidates instead of one per row
+    @Transactional(readOnly = true)
+    @Query("select u.username from User u where u.username in :usernames")
+    Set<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Transactional(readOnly = true)
+    @Query("select u.email from User u where u.email in :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Transactional(readOnly = true)
+    @Query("select u.phone from User u where u.phone in :phones")
+    Set<String> findExistingPhones(@Param("phones") Collection<String> phones);
+
+    // Read-only projections for the listing endpoints: only the UserView columns are selected and nothing is dirty-checked.
+    // Keyset pagination on the primary key: each page is an index range scan, however deep the client has paged
+    @Transactional(readOnly = true)
+    @Query(USER_VIEW_SELECT + "where u.id > :id order by u.id")
+    List<UserView> findViewsByIdGreaterThanOrderByIdAsc(@Param("id") Long id, Limit limit);
 
+    // Streams every user through a server-side cursor; must be consumed inside a transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(USER_VIEW_SELECT + "order by u.id")
+    Stream<UserView> streamViewsByOrderByIdAsc();
 }
@@ -0,0 +1,34 @@
+package com.pulse.api.security;
+
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+
+import java.util.Map;
+
+/**
+ * Stores new hashes as {@code {bcrypt}$2a$...} and still matches hashes without an id prefix, such as the seeded
+ * admin's, as BCrypt. DelegatingPasswordEncoder asks for an upgrade of every unprefixed hash without looking at its
+ * cost, which would rehash a stronger legacy hash down to the configured strength; those are left to the BCrypt
+ * encoder to decide.
+ */
+final class BCryptDelegatingPasswordEncoder extends DelegatingPasswordEncoder {
+
+    private static final String BCRYPT_ID = "bcrypt";
+
+    private static final String ID_PREFIX = "{";
+
+    private final CalibratedBCryptPasswordEncoder bcrypt;
+
+    BCryptDelegatingPasswordEncoder(CalibratedBCryptPasswordEncoder bcrypt) {
+        super(BCRYPT_ID, Map.of(BCRYPT_ID, bcrypt));
+        setDefaultPasswordEncoderForMatches(bcrypt);
+        this.bcrypt = bcrypt;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String prefixEncodedPassword) {
+        if (prefixEncodedPassword != null && !prefixEncodedPassword.startsWith(ID_PREFIX)) {
+            return bcrypt.upgradeEncoding(prefixEncodedPassword);
+        }
+        return super.upgradeEncoding(prefixEncodedPassword);
+    }
+}
@@ -0,0 +1,44 @@
+package com.pulse.api.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Picks the BCrypt strength whose hashing time on this machine fits a latency budget. Each strength step doubles the
+ * work, so one timed hash at the minimum strength predicts the others.
+ */
+final class BCryptStrengthCalibrator {
+
+    private static final int SAMPLES = 3;
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    static int calibrate(Duration budget, int minStrength, int maxStrength) {
+        return strengthFor(budget, minStrength, maxStrength, BCryptStrengthCalibrator::measureNanos);
+    }
+
+    // Highest strength whose predicted time is within the budget, never below minStrength
+    static int strengthFor(Duration budget, int minStrength, int maxStrength, IntToLongFunction nanosAtStrength) {
+        long nanos = Long.MAX_VALUE;
+        // The fastest sample is the least disturbed by JIT warm-up and other startup work
+        for (int i = 0; i < SAMPLES; i++) {
+            nanos = Math.min(nanos, Math.max(1, nanosAtStrength.applyAsLong(minStrength)));
+        }
+        int strength = minStrength;
+        while (strength < maxStrength && nanos * 2 <= budget.toNanos()) {
+            nanos *= 2;
+            strength++;
+        }
+        return strength;
+    }
+
+    private static long measureNanos(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long start = System.nanoTime();
+        encoder.encode("calibration");
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,102 @@
+package com.pulse.api.security;
+
+import com.pulse.api.exceptions.LoginRateLimitedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Throttles login attempts per identifier and per client address before any password is hashed or user loaded, so
+ * credential stuffing cannot turn into a BCrypt CPU burn.
+ * <p>
+ * Attempts are counted over a sliding window in two {@link SlidingWindowCounter}s of fixed size. Only admitted
+ * attempts are counted; the check and the increment are not atomic together, so concurrent attempts may exceed a
+ * limit by the number of racing requests.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final boolean enabled;
+    private final int identifierLimit;
+    private final int addressLimit;
+    private final SlidingWindowCounter identifierAttempts;
+    private final SlidingWindowCounter addressAttempts;
+    private final Clock clock;
+    private final Counter admitted;
+    private final Counter throttledByIdentifier;
+    private final Counter throttledByAddress;
+
+    @Autowired
+    public LoginRateLimiter(MeterRegistry meterRegistry,
+                            @Value("${pulse.login.rate-limit.enabled:true}") boolean enabled,
+                            @Value("${pulse.login.rate-limit.window:1m}") Duration window,
+                            @Value("${pulse.login.rate-limit.per-identifier:10}") int identifierLimit,
+                            @Value("${pulse.login.rate-limit.per-address:100}") int addressLimit,
+                            @Value("${pulse.login.rate-limit.sketch-width:4096}") int sketchWidth,
+                            @Value("${pulse.login.rate-limit.sketch-depth:4}") int sketchDepth) {
+        this(meterRegistry, enabled, window, identifierLimit, addressLimit, sketchWidth, sketchDepth, Clock.systemUTC());
+    }
+
+    LoginRateLimiter(MeterRegistry meterRegistry, boolean enabled, Duration window, int identifierLimit, int addressLimit,
+                     int sketchWidth, int sketchDepth, Clock clock) {
+        SecureRandom random = new SecureRandom();
+        this.enabled = enabled;
+        this.identifierLimit = identifierLimit;
+        this.addressLimit = addressLimit;
+        this.identifierAttempts = new SlidingWindowCounter(window, sketchWidth, sketchDepth, random.nextLong());
+        this.addressAttempts = new SlidingWindowCounter(window, sketchWidth, sketchDepth, random.nextLong());
+        this.clock = clock;
+        this.admitted = attempts(meterRegistry, "admitted", "none");
+        this.throttledByIdentifier = attempts(meterRegistry, "throttled", "identifier");
+        this.throttledByAddress = attempts(meterRegistry, "throttled", "address");
+    }
+
+    /**
+     * Records a login attempt, or throws {@link LoginRateLimitedException} if the identifier or the client address
+     * already used up its attempts in the current window.
+     */
+    public void acquire(String identifier, String clientAddress) {
+        if (!enabled) {
+            return;
+        }
+        long now = clock.millis();
+        // Identifiers match users case-insensitively often enough (emails) that case must not multiply the budget
+        String identifierKey = identifier == null ? "" : identifier.trim().toLowerCase(Locale.ROOT);
+        String addressKey = clientAddress == null ? "" : clientAddress;
+
+        if (identifierAttempts.estimate(identifierKey, now) >= identifierLimit) {
+            throttledByIdentifier.increment();
+            throw throttled(now, identifierAttempts);
+        }
+        if (addressAttempts.estimate(addressKey, now) >= addressLimit) {
+            throttledByAddress.increment();
+            throw throttled(now, addressAttempts);
+        }
+        identifierAttempts.increment(identifierKey, now);
+        addressAttempts.increment(addressKey, now);
+        admitted.increment();
+    }
+
+    // The previous window's weight keeps falling, so the next window start is a safe upper bound for a retry
+    private static LoginRateLimitedException throttled(long now, SlidingWindowCounter counter) {
+        long window = counter.windowMillis();
+        long untilNextWindow = window - Math.floorMod(now, window);
+        return new LoginRateLimitedException("Too many login attempts, please retry later",
+                Math.max(1, Duration.ofMillis(untilNextWindow).toSeconds()));
+    }
+
+    private static Counter attempts(MeterRegistry meterRegistry, String outcome, String limit) {
+        return Counter.builder("pulse.login.attempts")
+                .description("Login attempts seen by the login rate limiter")
+                .tag("outcome", outcome)
+                .tag("limit", limit)
+                .register(meterRegistry);
+    }
+}
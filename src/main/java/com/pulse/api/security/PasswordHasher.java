@@ -0,0 +1,62 @@
+package com.pulse.api.security;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt on a pool sized to the CPUs, so hashing many passwords uses every core without oversubscribing them,
+ * and a burst of logins waits in a bounded queue. Only the hash itself runs here; user lookups and the rest of a
+ * login stay on the request thread, so a slow database cannot fill the queue while the CPUs are idle.
+ * <p>
+ * These stay platform threads when virtual threads are enabled: hashing is CPU-bound and never blocks, so a virtual
+ * thread would only occupy a carrier for as long, without the pool's limit on concurrent hashes.
+ */
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder, int poolSize, int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public CompletableFuture<String> encode(CharSequence rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> passwordEncoder.encode(rawPassword), executor);
+        } catch (RejectedExecutionException e) {
+            // Queue full: the caller hashes the password itself, which throttles bulk callers to the pool's pace
+            return CompletableFuture.completedFuture(passwordEncoder.encode(rawPassword));
+        }
+    }
+
+    /**
+     * Checks a password at login. Throws RejectedExecutionException when the queue is full, which the API answers
+     * with 503.
+     */
+    public CompletableFuture<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return CompletableFuture.supplyAsync(() -> passwordEncoder.matches(rawPassword, encodedPassword), executor);
+    }
+
+    // Only parses the stored hash, so it runs on the caller
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
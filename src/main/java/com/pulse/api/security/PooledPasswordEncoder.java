@@ -0,0 +1,46 @@
+package com.pulse.api.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The application's PasswordEncoder: hands each hash to the {@link PasswordHasher} pool and waits for it, so the
+ * authentication provider keeps loading users on the request thread while BCrypt stays bounded by the pool.
+ */
+final class PooledPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordHasher passwordHasher;
+
+    PooledPasswordEncoder(PasswordHasher passwordHasher) {
+        this.passwordHasher = passwordHasher;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return join(passwordHasher.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return join(passwordHasher.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordHasher.upgradeEncoding(encodedPassword);
+    }
+
+    // Rethrows what the encoder threw, e.g. IllegalArgumentException for a malformed hash, rather than its wrapper
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -1,31 +1,59 @@
 package com.pulse.api.security;
 
 import com.pulse.api.jwt.JwtRequestFilter;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.time.Duration;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
+    private static final Logger logger = LoggerFactory.getLogger(SecurityConfig.class);
 
     @Autowired
     private JwtRequestFilter jwtRequestFilter;
 
+    // New hashes are stored as {bcrypt}$2a$...; hashes without an id prefix, such as the seeded admin's, are still BCrypt.
+    // A successful login rehashes passwords stored with a lower cost, with or without the prefix
+    // (see CustomCustomerDetailsService.updatePassword).
+    // The strength is configured for the whole fleet; calibration only reports what this machine could afford
+    @Bean
+    public PasswordHasher passwordHasher(@Value("${pulse.password-hashing.strength:10}") int strength,
+                                         @Value("${pulse.password-hashing.target-latency:250ms}") Duration targetLatency,
+                                         @Value("${pulse.password-hashing.min-strength:10}") int minStrength,
+                                         @Value("${pulse.password-hashing.max-strength:14}") int maxStrength,
+                                         @Value("${pulse.password-hashing.pool-size:0}") int poolSize,
+                                         @Value("${pulse.password-hashing.queue-capacity:100}") int queueCapacity) {
+        int affordable = BCryptStrengthCalibrator.calibrate(targetLatency, minStrength, maxStrength);
+        if (affordable != strength) {
+            logger.info("BCrypt strength {} is configured; this machine hashes within the {} ms target up to strength {}",
+                    strength, targetLatency.toMillis(), affordable);
+        }
+        PasswordEncoder encoder = new BCryptDelegatingPasswordEncoder(new CalibratedBCryptPasswordEncoder(strength));
+        return new PasswordHasher(encoder, poolSize, queueCapacity);
+    }
+
+    // The authentication provider and everything else hash through the bounded pool
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHasher passwordHasher) {
+        return new PooledPasswordEncoder(passwordHasher);
     }
 
     @Bean
@@ -33,8 +61,13 @@ public class SecurityConfig {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authorize -> authorize
+                        // Streamed responses complete on an async dispatch; the original request was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/users/create",  "/api/auth/login").permitAll()
-                        .requestMatchers("/api/users/delete/**","/api/users/update/**", "/api/users/all", "/api/users/username/**", "/api/users/emails").hasRole("ADMIN")
+                        // Served to <img> tags like any static asset; names are content digests
+                        .requestMatchers(HttpMethod.GET, "/api/users/profile-picture/*").permitAll()
+                        .requestMatchers(HttpMethod.HEAD, "/api/users/profile-picture/*").permitAll()
+                        .requestMatchers("/api/users/delete/**","/api/users/update/**", "/api/users/revoke-tokens/**", "/api/users/import", "/api/users/all", "/api/users/all/**", "/api/users/username/**", "/api/users/emails").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .exceptionHandling(handler -> handler
@@ -0,0 +1,101 @@
+package com.pulse.api.security;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Approximate per-key event counts over a sliding window, in fixed memory however many keys are seen.
+ * <p>
+ * Counts live in two count-min sketches, one for the current fixed window and one for the previous. The sliding count
+ * is the current window's count plus the previous window's, weighted by how much of it still overlaps the sliding
+ * window. A count-min sketch can only overestimate, so a key may be throttled early when many other keys share its
+ * cells, never late. Counters are atomic cells; rotating to a new window swaps both sketches with one CAS.
+ */
+final class SlidingWindowCounter {
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long windowMillis;
+    private final int width;
+    private final int depth;
+    private final long seed;
+    private final AtomicReference<Windows> windows;
+
+    private record Windows(long epoch, AtomicIntegerArray current, AtomicIntegerArray previous) {
+    }
+
+    SlidingWindowCounter(Duration window, int width, int depth, long seed) {
+        this.windowMillis = window.toMillis();
+        // Power of two, so a hash maps to a column with a mask
+        this.width = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.depth = depth;
+        this.seed = seed;
+        this.windows = new AtomicReference<>(new Windows(Long.MIN_VALUE, new AtomicIntegerArray(this.width * depth), null));
+    }
+
+    long windowMillis() {
+        return windowMillis;
+    }
+
+    double estimate(String key, long nowMillis) {
+        Windows current = windowsAt(nowMillis);
+        long hash = hash(key);
+        double overlap = 1.0 - (double) Math.floorMod(nowMillis, windowMillis) / windowMillis;
+        return min(current.current(), hash) + (current.previous() == null ? 0 : overlap * min(current.previous(), hash));
+    }
+
+    void increment(String key, long nowMillis) {
+        AtomicIntegerArray cells = windowsAt(nowMillis).current();
+        long hash = hash(key);
+        for (int row = 0; row < depth; row++) {
+            cells.incrementAndGet(cell(row, hash));
+        }
+    }
+
+    private Windows windowsAt(long nowMillis) {
+        long epoch = Math.floorDiv(nowMillis, windowMillis);
+        Windows windows = this.windows.get();
+        // A thread with a slightly older clock reading just uses the newer windows
+        while (windows.epoch() < epoch) {
+            AtomicIntegerArray previous = windows.epoch() == epoch - 1 ? windows.current() : null;
+            Windows next = new Windows(epoch, new AtomicIntegerArray(width * depth), previous);
+            if (this.windows.compareAndSet(windows, next)) {
+                return next;
+            }
+            windows = this.windows.get();
+        }
+        return windows;
+    }
+
+    private int min(AtomicIntegerArray cells, long hash) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, cells.get(cell(row, hash)));
+        }
+        return min;
+    }
+
+    // Double hashing: row i uses h1 + i * h2, which behaves like independent hash functions for count-min
+    private int cell(int row, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return row * width + ((h1 + row * h2) & (width - 1));
+    }
+
+    // FNV-1a from a random per-instance basis, then a 64-bit finalizer; the seed keeps collisions unpredictable to
+    // clients who would otherwise pick identifiers that share a victim's cells
+    private long hash(String key) {
+        long hash = seed;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,86 @@
+package com.pulse.api.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Remembers login identifiers that matched no user, so repeated attempts with the same unknown identifier skip the
+ * database. Entries expire after a short time because users may be created on other instances; creates and updates on
+ * this instance forget the affected identifiers right away.
+ * <p>
+ * A cached answer is faster than a query, which would tell a client which identifiers exist. Callers therefore wait
+ * until {@link #awaitLookupTime(long)} has padded the answer to the moving average of real lookups.
+ */
+@Component
+public class UnknownIdentifierCache {
+
+    // Weight of the newest lookup in the moving average
+    private static final double ALPHA = 0.1;
+
+    private final boolean enabled;
+    private final Cache<String, Boolean> unknown;
+    private final AtomicLong averageLookupNanos = new AtomicLong();
+
+    @Autowired
+    public UnknownIdentifierCache(MeterRegistry meterRegistry,
+                                  @Value("${pulse.login.unknown-identifiers.enabled:true}") boolean enabled,
+                                  @Value("${pulse.login.unknown-identifiers.maximum-size:10000}") long maximumSize,
+                                  @Value("${pulse.login.unknown-identifiers.ttl:30s}") Duration ttl) {
+        this.enabled = enabled;
+        this.unknown = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, unknown, "login.unknown-identifiers");
+    }
+
+    public boolean isUnknown(String identifier) {
+        return enabled && identifier != null && unknown.getIfPresent(identifier) != null;
+    }
+
+    public void markUnknown(String identifier) {
+        if (enabled && identifier != null) {
+            unknown.put(identifier, Boolean.TRUE);
+        }
+    }
+
+    // Called when a user takes these values, e.g. on create or when changing username, email or phone
+    public void forget(String... identifiers) {
+        for (String identifier : identifiers) {
+            if (identifier != null) {
+                unknown.invalidate(identifier);
+            }
+        }
+    }
+
+    public void recordLookupTime(long nanos) {
+        averageLookupNanos.getAndUpdate(average -> average == 0 ? nanos : Math.round(average + ALPHA * (nanos - average)));
+    }
+
+    // Parks the caller until an average lookup started at startNanos would have finished
+    public void awaitLookupTime(long startNanos) {
+        long deadline = startNanos + averageLookupNanos.get();
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    long averageLookupNanos() {
+        return averageLookupNanos.get();
+    }
+
+    long estimatedSize() {
+        return unknown.estimatedSize();
+    }
+}
@@ -0,0 +1,11 @@
+package com.pulse.api.service;
+
+import com.pulse.api.dto.UserImportResult;
+import com.pulse.api.dto.UserImportRow;
+
+import java.util.List;
+
+public interface UserImportService {
+    int getMaxRows();
+    List<UserImportResult> importUsers(List<UserImportRow> rows);
+}
@@ -1,24 +1,45 @@
 package com.pulse.api.service;
 
 import com.pulse.api.dto.UserDto;
+import com.pulse.api.dto.UserPage;
+import com.pulse.api.dto.UserPatch;
+import com.pulse.api.dto.UserResponse;
 import com.pulse.api.model.User;
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface UserService {
-    UserDto createUser(UserDto userDto);
-    UserDto updateUser(Long id, UserDto userDto);
-    UserDto findUserById(Long id);
-    UserDto findUserByEmail(String email);
-    UserDto  findUserByUsername(String username);
+    CompletableFuture<UserDto> createUser(UserDto userDto);
+    // A non-null expectedVersion must equal the user's current version (If-Match), or the update is refused.
+    // Completes with the user as saved, so callers need not read it back
+    CompletableFuture<UserResponse> updateUser(Long id, UserDto userDto, Long expectedVersion);
+
+    // Applies only the fields present in the patch; the user is returned as saved, without reading it back
+    UserResponse patchUser(Long id, UserPatch patch, Long expectedVersion);
+
+    // Empty if there is no such user; does not load the user unless it is cached
+    Optional<Long> findUserVersion(Long id);
+
+    UserResponse findUserById(Long id);
+    UserResponse findUserByEmail(String email);
+    UserResponse findUserByUsername(String username);
     List<UserDto> getAllUsers();
+    UserPage getUsersPage(String cursor, Integer size);
+    void forEachUser(Consumer<UserResponse> action);
     void deleteUser(Long id);
+    void revokeTokens(Long id);
     UserDto authenticateUser(String username, String password);
     public Optional<User> findByUsername(String username);
     Optional<User> findById(int id);
     List<User> findAllUsers();
 
-    void updateUserProfilePicture(long id, MultipartFile file);
+    CompletableFuture<Void> updateUserProfilePicture(long id, MultipartFile file);
+
+    // The stored picture, or its resized variant when a size is given
+    Optional<Resource> loadProfilePicture(String fileName, Integer size);
 }
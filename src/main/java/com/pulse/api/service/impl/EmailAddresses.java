@@ -0,0 +1,20 @@
+package com.pulse.api.service.impl;
+
+import java.util.regex.Pattern;
+
+/**
+ * The email address rule applied to imported rows and to patches. No Bean Validation provider is on the classpath,
+ * so the {@code @Email} on UserDto documents intent but is not enforced; this check is.
+ */
+final class EmailAddresses {
+
+    // One local part and a dotted domain, with no whitespace or second "@"
+    private static final Pattern EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+    private EmailAddresses() {
+    }
+
+    static boolean isValid(String email) {
+        return email != null && EMAIL.matcher(email).matches();
+    }
+}
@@ -0,0 +1,95 @@
+package com.pulse.api.service.impl;
+
+import com.pulse.api.dto.UserConflicts;
+import com.pulse.api.exceptions.EmailAlreadyExistsException;
+import com.pulse.api.exceptions.PhoneAlreadyExistsException;
+import com.pulse.api.exceptions.UsernameAlreadyExistsException;
+import com.pulse.api.model.User;
+import com.pulse.api.repo.UserRepo;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+
+/**
+ * Turns a unique-constraint violation on insert into the exception the pre-insert checks would have thrown.
+ */
+final class UserConstraintViolations {
+
+    private UserConstraintViolations() {
+    }
+
+    static RuntimeException translate(DataIntegrityViolationException e, User user, UserRepo userRepo) {
+        RuntimeException named = translateByName(e, user);
+        if (named != null) {
+            return named;
+        }
+
+        // Unnamed constraint (a schema created before the names existed): ask the table which value is taken
+        UserConflicts conflicts = userRepo.findConflicts(user.getUsername(), user.getEmail(), user.getPhone());
+        if (conflicts.usernameTaken()) {
+            return usernameTaken(user.getUsername());
+        }
+        if (conflicts.emailTaken()) {
+            return emailTaken(user.getEmail());
+        }
+        if (conflicts.phoneTaken()) {
+            return phoneTaken(user.getPhone());
+        }
+        return e;
+    }
+
+    // Null unless the violated constraint is one of the named unique constraints on users. Needs no query, so it also
+    // works inside a transaction the violation has already aborted
+    static RuntimeException translateByName(DataIntegrityViolationException e, User user) {
+        String constraint = constraintName(e);
+        if (constraint == null) {
+            return null;
+        }
+        // Drivers may report the name in upper case or decorated, e.g. H2's "UK_USERS_EMAIL_INDEX_4"
+        constraint = constraint.toLowerCase(Locale.ROOT);
+        if (constraint.contains(User.USERNAME_CONSTRAINT)) {
+            return usernameTaken(user.getUsername());
+        }
+        if (constraint.contains(User.EMAIL_CONSTRAINT)) {
+            return emailTaken(user.getEmail());
+        }
+        if (constraint.contains(User.PHONE_CONSTRAINT)) {
+            return phoneTaken(user.getPhone());
+        }
+        return null;
+    }
+
+    static void throwIfTaken(UserConflicts conflicts, String username, String email, String phone) {
+        if (conflicts.usernameTaken()) {
+            throw usernameTaken(username);
+        }
+        if (conflicts.emailTaken()) {
+            throw emailTaken(email);
+        }
+        if (conflicts.phoneTaken()) {
+            throw phoneTaken(phone);
+        }
+    }
+
+    private static String constraintName(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return violation.getConstraintName();
+            }
+        }
+        return null;
+    }
+
+    private static RuntimeException usernameTaken(String username) {
+        return new UsernameAlreadyExistsException("Username '" + username + "' already exists");
+    }
+
+    private static RuntimeException emailTaken(String email) {
+        return new EmailAlreadyExistsException("Email '" + email + "' already exists");
+    }
+
+    private static RuntimeException phoneTaken(String phone) {
+        return new PhoneAlreadyExistsException("Phone number '" + phone + "' already exists");
+    }
+}
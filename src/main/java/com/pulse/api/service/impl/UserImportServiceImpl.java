@@ -0,0 +1,246 @@
+package com.pulse.api.service.impl;
+
+import com.pulse.api.cache.UserCacheInvalidator;
+import com.pulse.api.dto.UserImportResult;
+import com.pulse.api.dto.UserImportRow;
+import com.pulse.api.enums.RoleName;
+import com.pulse.api.exceptions.InvalidImportException;
+import com.pulse.api.model.User;
+import com.pulse.api.repo.UserRepo;
+import com.pulse.api.security.PasswordHasher;
+import com.pulse.api.security.UnknownIdentifierCache;
+import com.pulse.api.service.UserImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Creates many users at once. Rows are checked up front (field rules, duplicates within the import, and uniqueness
+ * against the table with one IN query per chunk), then inserted in chunks: the chunk's passwords are hashed in
+ * parallel and its users saved in one transaction, which Hibernate sends as JDBC batches.
+ */
+@Service
+public class UserImportServiceImpl implements UserImportService {
+    private static final Logger logger = LoggerFactory.getLogger(UserImportServiceImpl.class);
+
+    // Users per insert transaction, and values per IN list when checking uniqueness
+    static final int INSERT_CHUNK_SIZE = 500;
+    static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    private final UserRepo userRepo;
+    private final PasswordHasher passwordHasher;
+    private final UnknownIdentifierCache unknownIdentifiers;
+    private final UserCacheInvalidator userCacheInvalidator;
+
+    @Value("${pulse.users.import.max-rows:50000}")
+    private int maxRows = 50000;
+
+    @Autowired
+    public UserImportServiceImpl(UserRepo userRepo, PasswordHasher passwordHasher, UnknownIdentifierCache unknownIdentifiers,
+                                 UserCacheInvalidator userCacheInvalidator) {
+        this.userRepo = userRepo;
+        this.passwordHasher = passwordHasher;
+        this.unknownIdentifiers = unknownIdentifiers;
+        this.userCacheInvalidator = userCacheInvalidator;
+    }
+
+    @Override
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    @Override
+    public List<UserImportResult> importUsers(List<UserImportRow> rows) {
+        if (rows == null || rows.isEmpty()) {
+            throw new InvalidImportException("Import contains no users");
+        }
+        if (rows.size() > maxRows) {
+            throw new InvalidImportException("Import is limited to " + maxRows + " rows");
+        }
+
+        UserImportResult[] results = new UserImportResult[rows.size()];
+        List<Integer> accepted = validate(rows, results);
+        accepted = rejectExisting(rows, accepted, results);
+
+        for (int from = 0; from < accepted.size(); from += INSERT_CHUNK_SIZE) {
+            insert(rows, accepted.subList(from, Math.min(from + INSERT_CHUNK_SIZE, accepted.size())), results);
+        }
+        if (!accepted.isEmpty()) {
+            // One message for the whole import rather than one per created user
+            userCacheInvalidator.invalidateAll();
+        }
+        return Arrays.asList(results);
+    }
+
+    // Field rules and duplicates within the import; returns the indexes of the rows that pass
+    private List<Integer> validate(List<UserImportRow> rows, UserImportResult[] results) {
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        Set<String> phones = new HashSet<>();
+        List<Integer> accepted = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            UserImportRow row = rows.get(i);
+            String error = row == null ? "Row is empty" : validate(row);
+            if (error == null && usernames.contains(row.username())) {
+                error = "Username '" + row.username() + "' appears more than once in the import";
+            } else if (error == null && emails.contains(row.email())) {
+                error = "Email '" + row.email() + "' appears more than once in the import";
+            } else if (error == null && !isBlank(row.phone()) && phones.contains(row.phone())) {
+                error = "Phone number '" + row.phone() + "' appears more than once in the import";
+            }
+            if (error != null) {
+                results[i] = UserImportResult.rejected(i + 1, row == null ? null : row.username(), error);
+                continue;
+            }
+            usernames.add(row.username());
+            emails.add(row.email());
+            if (!isBlank(row.phone())) {
+                phones.add(row.phone());
+            }
+            accepted.add(i);
+        }
+        return accepted;
+    }
+
+    // The same rules UserDto declares for a single create
+    private String validate(UserImportRow row) {
+        if (isBlank(row.firstName())) {
+            return "First name is mandatory";
+        }
+        if (isBlank(row.lastName())) {
+            return "Last name is mandatory";
+        }
+        if (isBlank(row.username())) {
+            return "Username is mandatory";
+        }
+        if (row.username().length() < 3 || row.username().length() > 30) {
+            return "Username must be between 3 and 30 characters long";
+        }
+        if (isBlank(row.email())) {
+            return "Email is mandatory";
+        }
+        if (!EmailAddresses.isValid(row.email())) {
+            return "Email should be valid";
+        }
+        if (isBlank(row.password())) {
+            return "Password is mandatory";
+        }
+        if (row.password().length() < 8) {
+            return "Password should be at least 8 characters long";
+        }
+        return null;
+    }
+
+    private List<Integer> rejectExisting(List<UserImportRow> rows, List<Integer> accepted, UserImportResult[] results) {
+        Set<String> usernames = existing(userRepo::findExistingUsernames, rows, accepted, UserImportRow::username);
+        Set<String> emails = existing(userRepo::findExistingEmails, rows, accepted, UserImportRow::email);
+        Set<String> phones = existing(userRepo::findExistingPhones, rows, accepted, UserImportRow::phone);
+
+        List<Integer> remaining = new ArrayList<>(accepted.size());
+        for (int i : accepted) {
+            UserImportRow row = rows.get(i);
+            String error = null;
+            if (usernames.contains(row.username())) {
+                error = "Username '" + row.username() + "' already exists";
+            } else if (emails.contains(row.email())) {
+                error = "Email '" + row.email() + "' already exists";
+            } else if (!isBlank(row.phone()) && phones.contains(row.phone())) {
+                error = "Phone number '" + row.phone() + "' already exists";
+            }
+            if (error != null) {
+                results[i] = UserImportResult.rejected(i + 1, row.username(), error);
+            } else {
+                remaining.add(i);
+            }
+        }
+        return remaining;
+    }
+
+    private static Set<String> existing(Function<Collection<String>, Set<String>> query, List<UserImportRow> rows,
+                                        List<Integer> indexes, Function<UserImportRow, String> field) {
+        List<String> values = indexes.stream()
+                .map(i -> field.apply(rows.get(i)))
+                .filter(Predicate.not(UserImportServiceImpl::isBlank))
+                .toList();
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < values.size(); from += LOOKUP_CHUNK_SIZE) {
+            existing.addAll(query.apply(values.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, values.size()))));
+        }
+        return existing;
+    }
+
+    private void insert(List<UserImportRow> rows, List<Integer> indexes, UserImportResult[] results) {
+        // BCrypt dominates the cost of an import; hash the whole chunk on the hashing pool before touching the database
+        List<CompletableFuture<String>> hashes = indexes.stream()
+                .map(i -> passwordHasher.encode(rows.get(i).password()))
+                .toList();
+        List<User> users = new ArrayList<>(indexes.size());
+        for (int k = 0; k < indexes.size(); k++) {
+            users.add(toEntity(rows.get(indexes.get(k)), hashes.get(k).join()));
+        }
+
+        try {
+            userRepo.saveAll(users);
+        } catch (DataIntegrityViolationException e) {
+            // A user created concurrently took a value since the uniqueness check; find the affected rows one by one
+            logger.info("Batch insert of {} imported users failed, retrying them one at a time", users.size());
+            for (int k = 0; k < indexes.size(); k++) {
+                int i = indexes.get(k);
+                User user = users.get(k);
+                user.setId(null);
+                user.setVersion(null);
+                try {
+                    userRepo.save(user);
+                    unknownIdentifiers.forget(user.getUsername(), user.getEmail(), user.getPhone());
+                    results[i] = UserImportResult.created(i + 1, user.getUsername(), user.getId());
+                } catch (DataIntegrityViolationException conflict) {
+                    results[i] = UserImportResult.rejected(i + 1, user.getUsername(),
+                            UserConstraintViolations.translate(conflict, user, userRepo).getMessage());
+                }
+            }
+            return;
+        }
+        for (int k = 0; k < indexes.size(); k++) {
+            int i = indexes.get(k);
+            User user = users.get(k);
+            unknownIdentifiers.forget(user.getUsername(), user.getEmail(), user.getPhone());
+            results[i] = UserImportResult.created(i + 1, user.getUsername(), user.getId());
+        }
+    }
+
+    private static User toEntity(UserImportRow row, String passwordHash) {
+        User user = new User();
+        user.setUsername(row.username());
+        user.setPassword(passwordHash);
+        user.setEmail(row.email());
+        user.setFirstName(row.firstName());
+        user.setMiddleName(row.middleName());
+        user.setLastName(row.lastName());
+        user.setPhone(isBlank(row.phone()) ? null : row.phone());
+        user.setCountry(row.country());
+        user.setGender(row.gender());
+        user.setRelationshipStatus(row.relationshipStatus());
+        user.setBio(row.bio());
+        user.setRoles(row.roles() == null || row.roles().isEmpty()
+                ? EnumSet.of(RoleName.NORMAL) : EnumSet.copyOf(row.roles()));
+        return user;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -1,115 +1,248 @@
 package com.pulse.api.service.impl;
 
+import com.pulse.api.cache.CoalescingUserLookups;
+import com.pulse.api.cache.UserCacheInvalidator;
 import com.pulse.api.dto.UserDto;
+import com.pulse.api.dto.UserPage;
+import com.pulse.api.dto.UserPatch;
+import com.pulse.api.dto.UserResponse;
+import com.pulse.api.dto.UserView;
 import com.pulse.api.enums.RoleName;
-import com.pulse.api.exceptions.EmailAlreadyExistsException;
-import com.pulse.api.exceptions.PhoneAlreadyExistsException;
+import com.pulse.api.exceptions.InvalidCursorException;
+import com.pulse.api.exceptions.InvalidUserUpdateException;
 import com.pulse.api.exceptions.ResourceNotFoundException;
-import com.pulse.api.exceptions.UsernameAlreadyExistsException;
+import com.pulse.api.exceptions.UserVersionMismatchException;
 import com.pulse.api.model.User;
 import com.pulse.api.repo.UserRepo;
+import com.pulse.api.security.PasswordHasher;
+import com.pulse.api.security.UnknownIdentifierCache;
 import com.pulse.api.service.UserService;
+import com.pulse.api.storage.ProfilePictureStore;
+import com.pulse.api.storage.ProfilePictureUrls;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class UserServiceImpl implements UserService {
 
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final UserRepo userRepo;
+    private final ProfilePictureStore profilePictureStore;
+    private final UnknownIdentifierCache unknownIdentifiers;
+    private final UserCacheInvalidator userCacheInvalidator;
+    private final CoalescingUserLookups userLookups;
+
+    @Value("${pulse.users.page.default-size:50}")
+    private int defaultPageSize = 50;
+
+    @Value("${pulse.users.page.max-size:500}")
+    private int maxPageSize = 500;
+
+    // Skip the uniqueness query and let the unique constraints reject duplicates on insert
+    @Value("${pulse.users.create.optimistic:false}")
+    private boolean optimisticCreate = false;
 
     @Autowired
     @Lazy
-    public UserServiceImpl(PasswordEncoder passwordEncoder, UserRepo userRepo) {
-        this.passwordEncoder = passwordEncoder;
+    public UserServiceImpl(PasswordHasher passwordHasher, UserRepo userRepo, ProfilePictureStore profilePictureStore,
+                           UnknownIdentifierCache unknownIdentifiers, UserCacheInvalidator userCacheInvalidator,
+                           CoalescingUserLookups userLookups) {
+        this.passwordHasher = passwordHasher;
         this.userRepo = userRepo;
+        this.profilePictureStore = profilePictureStore;
+        this.unknownIdentifiers = unknownIdentifiers;
+        this.userCacheInvalidator = userCacheInvalidator;
+        this.userLookups = userLookups;
     }
 
     @Override
-    public UserDto createUser(UserDto userDto) {
-        // Check if user with the same username, email, or phone already exists
-        if (userRepo.existsByUsername(userDto.getUsername())) {
-            throw new UsernameAlreadyExistsException("Username '" + userDto.getUsername() + "' already exists");
-        }
-        if (userRepo.existsByEmail(userDto.getEmail())) {
-            throw new EmailAlreadyExistsException("Email '" + userDto.getEmail() + "' already exists");
-        }
-        if (userRepo.existsByPhone(userDto.getPhone())) {
-            throw new PhoneAlreadyExistsException("Phone number '" + userDto.getPhone() + "' already exists");
+    public CompletableFuture<UserDto> createUser(UserDto userDto) {
+        // Check if user with the same username, email, or phone already exists, in one query. The insert can still race
+        // with another registration, so a constraint violation on save is translated the same way
+        if (!optimisticCreate) {
+            UserConstraintViolations.throwIfTaken(
+                    userRepo.findConflicts(userDto.getUsername(), userDto.getEmail(), userDto.getPhone()),
+                    userDto.getUsername(), userDto.getEmail(), userDto.getPhone());
         }
 
         // Convert to Entity
         User user = convertToEntity(userDto);
 
 
-        // Handle profile picture upload
-        handleProfilePictureUpload(userDto.getProfilePicture(), user);
+        // Store the profile picture off the request thread, then save the User once the file is in place
+        return storeProfilePicture(userDto.getProfilePicture(), user)
+                .thenApply(this::insert)
+                .thenApply(this::convertToDto);
+    }
 
-        // Save User
-        User savedUser = userRepo.save(user);
 
-        // Convert to Dto
-        return convertToDto(savedUser);
+    // A picture stored for a rejected user is left unreferenced and removed by the garbage collector
+    private User insert(User user) {
+        try {
+            User saved = forgetUnknown(userRepo.save(user));
+            // Other nodes may have cached that nobody has this email yet
+            userCacheInvalidator.invalidate(saved.getId());
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            throw UserConstraintViolations.translate(e, user, userRepo);
+        }
     }
 
-
     @Override
-    public UserDto updateUser(Long id, UserDto userDto) {
+    public CompletableFuture<UserResponse> updateUser(Long id, UserDto userDto, Long expectedVersion) {
         // Find the user by id
         User existingUser = userRepo.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        // The merge on save compares the version again, so an update committed in between fails instead of being lost
+        checkVersion(existingUser, expectedVersion);
 
         // Check if the username or email is already taken by another user
-        validateUniqueFields(userDto, id);
+        validateUniqueFields(userDto, existingUser);
 
         // Update the existing user with the new values from userDto
         updateExistingUser(existingUser, userDto);
 
-        // Handle profile picture upload
-        handleProfilePictureUpload(userDto.getProfilePicture(), existingUser);
+        // Store the profile picture off the request thread, then save the updated User
+        return storeProfilePicture(userDto.getProfilePicture(), existingUser)
+                .thenApply(userRepo::save)
+                .thenApply(saved -> {
+                    forgetUnknown(existingUser);
+                    userCacheInvalidator.invalidate(id);
+                    // The saved copy carries the incremented version, so the ETag matches this update and no later one
+                    return UserResponse.from(saved);
+                });
+    }
 
-        // Save updated User
-        userRepo.save(existingUser);
-        return userDto;
+    @Override
+    @Transactional
+    public UserResponse patchUser(Long id, UserPatch patch, Long expectedVersion) {
+        User user = userRepo.findCachedById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        checkVersion(user, expectedVersion);
+        validatePatch(patch);
+
+        // Only identifiers that actually change can collide with another user
+        String username = changed(user.getUsername(), patch.username());
+        String email = changed(user.getEmail(), patch.email());
+        String phone = changed(user.getPhone(), patch.phone());
+        if (username != null || email != null || phone != null) {
+            UserConstraintViolations.throwIfTaken(userRepo.findConflicts(username, email, phone), username, email, phone);
+        }
+
+        // Setting a field to its current value is not a change either, so unchanged columns stay out of the UPDATE
+        if (username != null) user.setUsername(username);
+        if (email != null) user.setEmail(email);
+        if (phone != null) user.setPhone(phone);
+        setIfChanged(user.getFirstName(), patch.firstName(), user::setFirstName);
+        setIfChanged(user.getMiddleName(), patch.middleName(), user::setMiddleName);
+        setIfChanged(user.getLastName(), patch.lastName(), user::setLastName);
+        setIfChanged(user.getCountry(), patch.country(), user::setCountry);
+        setIfChanged(user.getGender(), patch.gender(), user::setGender);
+        setIfChanged(user.getRelationshipStatus(), patch.relationshipStatus(), user::setRelationshipStatus);
+        setIfChanged(user.getBio(), patch.bio(), user::setBio);
+        if (patch.roles() != null && !patch.roles().equals(user.getRoles())) {
+            user.setRoles(patch.roles().isEmpty() ? EnumSet.noneOf(RoleName.class) : EnumSet.copyOf(patch.roles()));
+        }
+
+        try {
+            // Flush here, so a concurrent update of this user or of the same identifier fails this call, not the commit
+            userRepo.flush();
+        } catch (DataIntegrityViolationException e) {
+            // The transaction is aborted, so no query can tell which value was taken; only the constraint name can
+            RuntimeException named = UserConstraintViolations.translateByName(e, user);
+            throw named != null ? named : e;
+        }
+
+        forgetUnknown(user);
+        userCacheInvalidator.invalidate(id);
+        return UserResponse.from(user);
     }
 
+    private static void checkVersion(User user, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+            throw new UserVersionMismatchException("User with id " + user.getId() + " has been modified since it was read");
+        }
+    }
+
+    private static void validatePatch(UserPatch patch) {
+        if (patch.firstName() != null && patch.firstName().isBlank()) {
+            throw new InvalidUserUpdateException("First name must not be blank");
+        }
+        if (patch.lastName() != null && patch.lastName().isBlank()) {
+            throw new InvalidUserUpdateException("Last name must not be blank");
+        }
+        if (patch.username() != null && (patch.username().isBlank() || patch.username().length() < 3
+                || patch.username().length() > 30)) {
+            throw new InvalidUserUpdateException("Username must be between 3 and 30 characters");
+        }
+        if (patch.email() != null && !EmailAddresses.isValid(patch.email())) {
+            throw new InvalidUserUpdateException("Email should be valid");
+        }
+    }
+
+    // The new value, or null when the patch leaves the field out or repeats its current value
+    private static <T> T changed(T current, T patched) {
+        return patched == null || patched.equals(current) ? null : patched;
+    }
+
+    private static <T> void setIfChanged(T current, T patched, Consumer<T> setter) {
+        T value = changed(current, patched);
+        if (value != null) {
+            setter.accept(value);
+        }
+    }
+
+    // The user's identifiers may have been cached as unknown by a failed login; they can log in with them now
+    private User forgetUnknown(User user) {
+        unknownIdentifiers.forget(user.getUsername(), user.getEmail(), user.getPhone());
+        return user;
+    }
+
+    // Not transactional: concurrent identical lookups wait for one shared query without holding a connection each
     @Override
-    public UserDto findUserById(Long id) {
-        User user = userRepo.findById(id)
+    public UserResponse findUserById(Long id) {
+        // Served from the second-level cache after the first load, including right after an update
+        User user = userLookups.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User with id "+id+" not found"));
 
-        return convertToDto(user);
+        return UserResponse.from(user);
+    }
+
+    @Override
+    public Optional<Long> findUserVersion(Long id) {
+        return userLookups.findVersionById(id);
     }
 
     @Override
-    public UserDto findUserByEmail(String email) {
-        User user = userRepo.findByEmail(email)
+    public UserResponse findUserByEmail(String email) {
+        User user = userLookups.findByEmail(email)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        return convertToDto(user);
+        return UserResponse.from(user);
     }
 
     @Override
-    public UserDto findUserByUsername(String username) {
-        User user = userRepo.findByUsername(username)
+    public UserResponse findUserByUsername(String username) {
+        User user = userLookups.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with username " + username));
 
-        return convertToDto(user);
+        return UserResponse.from(user);
     }
 
     @Override
@@ -120,12 +253,52 @@ public class UserServiceImpl implements UserService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public UserPage getUsersPage(String cursor, Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.min(Math.max(size, 1), maxPageSize);
+
+        // Fetch one extra row to learn whether another page follows, without a count query
+        List<UserView> users = userRepo.findViewsByIdGreaterThanOrderByIdAsc(decodeCursor(cursor), Limit.of(pageSize + 1));
+        boolean hasNext = users.size() > pageSize;
+        if (hasNext) {
+            users = users.subList(0, pageSize);
+        }
+
+        List<UserResponse> responses = new ArrayList<>(users.size());
+        for (UserView user : users) {
+            responses.add(UserResponse.from(user));
+        }
+        String nextCursor = hasNext ? encodeCursor(users.get(users.size() - 1).getId()) : null;
+        return new UserPage(responses, nextCursor);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachUser(Consumer<UserResponse> action) {
+        // Projected rows are not managed entities, so the persistence context stays empty however many are streamed
+        try (Stream<UserView> users = userRepo.streamViewsByOrderByIdAsc()) {
+            users.forEach(user -> action.accept(UserResponse.from(user)));
+        }
+    }
+
     @Override
     public void deleteUser(Long id) {
         User user = userRepo.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id " + id));
 
         userRepo.delete(user);
+        userCacheInvalidator.invalidate(id);
+    }
+
+    @Override
+    public void revokeTokens(Long id) {
+        // Tokens carry the version they were issued with; bumping it invalidates all of them in stateless mode
+        if (userRepo.incrementTokenVersion(id) == 0) {
+            throw new ResourceNotFoundException("User not found with id " + id);
+        }
+        // The bulk update bypassed the cached entity, which still holds the old token version
+        userCacheInvalidator.invalidateAfterBulkUpdate(id);
     }
 
     @Transactional
@@ -134,57 +307,56 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         // Check password (you may want to implement a method for this)
-        if (!passwordEncoder.matches(password, user.getPassword())) {
+        if (!passwordHasher.matches(password, user.getPassword()).join()) {
             throw new RuntimeException("Invalid credentials");
         }
 
         return convertToDto(user);
     }
 
-    private void handleProfilePictureUpload(MultipartFile profilePictureFile, User user) {
-        if (profilePictureFile != null && !profilePictureFile.isEmpty()) {
-            String originalFileName = StringUtils.cleanPath(Objects.requireNonNull(profilePictureFile.getOriginalFilename()));
-            String fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
-
-            // Generate a unique file name using UUID
-            String uniqueFileName = UUID.randomUUID().toString() + fileExtension;
-
-            // Define the path where the file will be stored
-            Path uploadPath = Paths.get("D:/JAVA/pulse-api-secure UPLOADS");
-
-            try {
-                // Create directories if they don't exist
-                Files.createDirectories(uploadPath);
-
-                // Define the file path where the image will be saved
-                Path filePath = uploadPath.resolve(uniqueFileName);
-
-                // Save the file to the specified path
-                Files.copy(profilePictureFile.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-                // Save the file name in the profilePicture field
-                user.setProfilePicture(uniqueFileName);
-
-                // Construct the URL for accessing the image
-                String fileUrl = "http://pulse.com/uploads/" + uniqueFileName;
+    // Completes with the user once its new profile picture, if any, has been stored
+    private CompletableFuture<User> storeProfilePicture(MultipartFile profilePictureFile, User user) {
+        if (profilePictureFile == null || profilePictureFile.isEmpty()) {
+            return CompletableFuture.completedFuture(user);
+        }
+        return profilePictureStore.store(profilePictureFile)
+                .thenApply(fileName -> {
+                    user.setProfilePicture(fileName);
+                    return user;
+                });
+    }
 
+    // The cursor is the last id of the previous page, kept opaque so the paging key can change later
+    private static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
 
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to store file " + uniqueFileName, e);
-            }
+    private static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor '" + cursor + "'");
         }
     }
 
-
-    private void validateUniqueFields(UserDto userDto, Long userId) {
-        Optional<User> userWithSameUsername = userRepo.findByUsername(userDto.getUsername());
-        if (userWithSameUsername.isPresent() && userWithSameUsername.get().getId() != userId) {
-            throw new IllegalArgumentException("Username '" + userDto.getUsername() + "' is already taken.");
+    // A value the user already has cannot be taken by anyone else, so only changed fields are looked up
+    private void validateUniqueFields(UserDto userDto, User existingUser) {
+        Long userId = existingUser.getId();
+        if (!Objects.equals(userDto.getUsername(), existingUser.getUsername())) {
+            Optional<User> userWithSameUsername = userRepo.findByUsername(userDto.getUsername());
+            if (userWithSameUsername.isPresent() && !userWithSameUsername.get().getId().equals(userId)) {
+                throw new IllegalArgumentException("Username '" + userDto.getUsername() + "' is already taken.");
+            }
         }
 
-        Optional<User> userWithSameEmail = userRepo.findByEmail(userDto.getEmail());
-        if (userWithSameEmail.isPresent() && userWithSameEmail.get().getId() != userId) {
-            throw new IllegalArgumentException("Email '" + userDto.getEmail() + "' is already taken.");
+        if (!Objects.equals(userDto.getEmail(), existingUser.getEmail())) {
+            Optional<User> userWithSameEmail = userRepo.findByEmail(userDto.getEmail());
+            if (userWithSameEmail.isPresent() && !userWithSameEmail.get().getId().equals(userId)) {
+                throw new IllegalArgumentException("Email '" + userDto.getEmail() + "' is already taken.");
+            }
         }
     }
 
@@ -205,7 +377,7 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public void updateUserProfilePicture(long id, MultipartFile file) {
+    public CompletableFuture<Void> updateUserProfilePicture(long id, MultipartFile file) {
         // Check if the file is empty
         if (file.isEmpty()) {
             throw new IllegalArgumentException("File cannot be empty");
@@ -215,35 +387,27 @@ public class UserServiceImpl implements UserService {
         User user = userRepo.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User with ID " + id + " not found"));
 
-        // Define a directory to save the uploaded file (or use a service like Amazon S3, etc.)
-        String uploadDir = "/path/to/profile-pictures/";
-
-        // Generate a unique filename (for example, using the user ID and original filename)
-        String fileName = "profile_" + id + "_" + file.getOriginalFilename();
-
-        // Construct the file path
-        Path filePath = Paths.get(uploadDir + fileName);
-
-        try {
-            // Save the file to the system (using NIO)
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-            // Update the user's profile picture field (assuming user has a `profilePicture` field)
-            user.setProfilePicture(fileName);
+        // The file is written before the user is saved, so no connection is held during the disk I/O
+        return storeProfilePicture(file, user)
+                .thenAccept(stored -> {
+                    userRepo.save(stored);
+                    userCacheInvalidator.invalidate(id);
+                });
+    }
 
-            // Save the updated user back to the database
-            userRepo.save(user);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to upload the file: " + e.getMessage());
-        }
+    @Override
+    public Optional<Resource> loadProfilePicture(String fileName, Integer size) {
+        return size == null ? profilePictureStore.load(fileName) : profilePictureStore.loadVariant(fileName, size);
     }
+
     private User convertToEntity(UserDto userDto) {
         if (userDto == null) {
             throw new IllegalArgumentException("UserDto cannot be null");
         }
         User user = new User();
         user.setUsername(userDto.getUsername());
-        user.setPassword(passwordEncoder.encode(userDto.getPassword()));
+        // Hashed on the bounded pool like imports; a full queue makes the request thread hash it instead
+        user.setPassword(passwordHasher.encode(userDto.getPassword()).join());
         user.setEmail(userDto.getEmail());
         user.setFirstName(userDto.getFirstName());
         user.setMiddleName(userDto.getMiddleName());
@@ -274,7 +438,8 @@ public class UserServiceImpl implements UserService {
         return user;
     }
 
-    private UserDto convertToDto(User user) {
+    // Package-private for UserConversionBenchmark
+    UserDto convertToDto(User user) {
         UserDto userDto = new UserDto();
         userDto.setId(user.getId());
         userDto.setUsername(user.getUsername());
@@ -287,7 +452,8 @@ public class UserServiceImpl implements UserService {
         userDto.setGender(user.getGender());
         userDto.setRelationshipStatus(user.getRelationshipStatus());
         userDto.setBio(user.getBio());
-        userDto.setProfilePictureUrl(user.getProfilePicture());
+        userDto.setProfilePictureUrl(ProfilePictureUrls.original(user.getProfilePicture()));
+        userDto.setProfilePictureVariants(ProfilePictureUrls.variants(user.getProfilePicture()));
 
         Set<RoleName> roles = new HashSet<>();
         roles.add(RoleName.NORMAL);
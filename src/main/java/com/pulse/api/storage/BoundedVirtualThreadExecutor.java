@@ -0,0 +1,77 @@
+package com.pulse.api.storage;
+
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs each task on its own virtual thread, with at most {@code maxTasks} running at once; further tasks are rejected
+ * like a full pool queue would reject them. Requires Java 21.
+ */
+final class BoundedVirtualThreadExecutor extends AbstractExecutorService {
+
+    private final VirtualThreadTaskExecutor threads;
+    private final int maxTasks;
+    private final Semaphore permits;
+    private volatile boolean shutdown;
+
+    BoundedVirtualThreadExecutor(String threadNamePrefix, int maxTasks) {
+        this.threads = new VirtualThreadTaskExecutor(threadNamePrefix);
+        this.maxTasks = maxTasks;
+        this.permits = new Semaphore(maxTasks);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (shutdown || !permits.tryAcquire()) {
+            throw new RejectedExecutionException("Too many tasks in flight (" + maxTasks + ")");
+        }
+        try {
+            threads.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    // Running tasks are left to finish: they write whole files and are short
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        return List.of();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && permits.availablePermits() == maxTasks;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        if (permits.tryAcquire(maxTasks, timeout, unit)) {
+            permits.release(maxTasks);
+            return true;
+        }
+        return false;
+    }
+}
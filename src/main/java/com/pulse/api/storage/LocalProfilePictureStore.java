@@ -0,0 +1,324 @@
+package com.pulse.api.storage;
+
+import com.pulse.api.exceptions.InvalidProfilePictureException;
+import com.pulse.api.exceptions.StorageException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Stores profile pictures in a local directory, named by the SHA-256 of their content: identical uploads share one
+ * immutable file. Resized variants live under {@code variants/<size>/} with the same name. Uploads and variants are
+ * written on a small bounded pool (with virtual threads enabled, on bounded virtual threads): when its queue is full
+ * further uploads are rejected rather than tying up request threads.
+ */
+@Component
+public class LocalProfilePictureStore implements ProfilePictureStore {
+    private static final Logger logger = LoggerFactory.getLogger(LocalProfilePictureStore.class);
+
+    private static final long TRANSFER_CHUNK = 1L << 20;
+    private static final String TEMP_PREFIX = ".upload-";
+    private static final String VARIANTS_DIRECTORY = "variants";
+
+    private final Path root;
+    private final ExecutorService executor;
+    // Variant generations in progress, so concurrent requests for the same missing variant share one
+    private final ConcurrentMap<Path, CompletableFuture<Path>> variantsInProgress = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LocalProfilePictureStore(@Value("${pulse.storage.local.root:uploads/profile-pictures}") Path root,
+                                    @Value("${pulse.storage.executor.pool-size:4}") int poolSize,
+                                    @Value("${pulse.storage.executor.queue-capacity:100}") int queueCapacity,
+                                    @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.root = root.toAbsolutePath().normalize();
+        // Owned here rather than exposed as an Executor bean, which would replace Spring Boot's applicationTaskExecutor
+        this.executor = newExecutor(poolSize, queueCapacity, virtualThreads);
+    }
+
+    LocalProfilePictureStore(Path root, int poolSize, int queueCapacity) {
+        this(root, poolSize, queueCapacity, false);
+    }
+
+    private static ExecutorService newExecutor(int poolSize, int queueCapacity, boolean virtualThreads) {
+        if (virtualThreads && JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            // Uploads block on file I/O; virtual threads let them all run at once, still bounded by the same total
+            return new BoundedVirtualThreadExecutor("profile-picture-", poolSize + queueCapacity);
+        }
+        if (virtualThreads) {
+            logger.warn("Virtual threads need Java 21; profile pictures are stored on platform threads");
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "profile-picture-" + threadCount.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public CompletableFuture<String> store(MultipartFile file) {
+        // Only picture names are kept; the name decides the content type the picture is served with
+        String extension = ProfilePictureFormats.extensionOf(file.getOriginalFilename())
+                .orElseThrow(() -> new InvalidProfilePictureException("Profile picture must be a JPEG, PNG, GIF or WebP file"));
+        return CompletableFuture.supplyAsync(() -> write(file, extension), executor)
+                .thenApply(fileName -> {
+                    generateVariantsInBackground(fileName);
+                    return fileName;
+                });
+    }
+
+    @Override
+    public Optional<Resource> load(String fileName) {
+        return resolveStored(fileName).map(FileSystemResource::new);
+    }
+
+    @Override
+    public Optional<Resource> loadVariant(String fileName, int size) {
+        Optional<Path> original = resolveStored(fileName);
+        if (original.isEmpty() || !VARIANT_SIZES.contains(size)) {
+            return Optional.empty();
+        }
+        Path variant = variantPath(fileName, size);
+        if (!Files.isRegularFile(variant)) {
+            // Pictures stored before variants existed get theirs on first request
+            try {
+                generateVariant(original.get(), variant, size).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        return Optional.of(new FileSystemResource(variant));
+    }
+
+    @Override
+    public List<String> listStoredBefore(Instant cutoff) {
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(root)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(path -> lastModified(path).isBefore(cutoff))
+                    .map(path -> path.getFileName().toString())
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean deleteIfStoredBefore(String fileName, Instant cutoff) {
+        Path path = root.resolve(fileName).normalize();
+        if (!root.equals(path.getParent())) {
+            throw new IllegalArgumentException("Not a stored file name: " + fileName);
+        }
+        try {
+            // Re-checked right before deleting: a duplicate upload may have claimed the file since it was listed
+            if (!Files.exists(path) || !lastModified(path).isBefore(cutoff)) {
+                return false;
+            }
+            for (int size : VARIANT_SIZES) {
+                Files.deleteIfExists(variantPath(fileName, size));
+            }
+            return Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            logger.warn("Profile picture uploads still running at shutdown were abandoned");
+            executor.shutdownNow();
+        }
+    }
+
+    // Path of a stored original, or empty for unknown names and names that are not plain stored file names
+    private Optional<Path> resolveStored(String fileName) {
+        Path path = root.resolve(fileName).normalize();
+        if (!root.equals(path.getParent()) || fileName.startsWith(TEMP_PREFIX) || !Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        return Optional.of(path);
+    }
+
+    private Path variantPath(String fileName, int size) {
+        return root.resolve(VARIANTS_DIRECTORY).resolve(Integer.toString(size)).resolve(fileName);
+    }
+
+    private void generateVariantsInBackground(String fileName) {
+        Path original = root.resolve(fileName);
+        for (int size : VARIANT_SIZES) {
+            try {
+                generateVariant(original, variantPath(fileName, size), size);
+            } catch (RejectedExecutionException e) {
+                // The pool is saturated with uploads; the variant is generated on its first request instead
+                logger.debug("Deferred {}px variant of {}", size, fileName);
+            }
+        }
+    }
+
+    private CompletableFuture<Path> generateVariant(Path original, Path variant, int size) {
+        CompletableFuture<Path> generation = variantsInProgress.computeIfAbsent(variant,
+                key -> CompletableFuture.supplyAsync(() -> writeVariant(original, variant, size), executor));
+        generation.whenComplete((path, ex) -> variantsInProgress.remove(variant, generation));
+        return generation;
+    }
+
+    private Path writeVariant(Path original, Path variant, int size) {
+        // A request that missed the file just before the previous generation finished lands here
+        if (Files.isRegularFile(variant)) {
+            return variant;
+        }
+        Path temp = null;
+        try {
+            Files.createDirectories(variant.getParent());
+            temp = Files.createTempFile(variant.getParent(), TEMP_PREFIX, ".tmp");
+            ProfilePictureResizer.resize(original, temp, size);
+            Files.move(temp, variant, StandardCopyOption.ATOMIC_MOVE);
+            return variant;
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new StorageException("Failed to create " + size + "px variant of " + original.getFileName(), e);
+        }
+    }
+
+    private String write(MultipartFile file, String extension) {
+        Path temp = null;
+        try {
+            Files.createDirectories(root);
+            // Same directory as the target, so the rename below never crosses file systems
+            temp = Files.createTempFile(root, TEMP_PREFIX, ".tmp");
+            MessageDigest digest = newDigest();
+            try (ReadableByteChannel source = new DigestingChannel(Channels.newChannel(file.getInputStream()), digest);
+                 FileChannel target = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long position = 0;
+                long transferred;
+                while ((transferred = target.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                    position += transferred;
+                }
+            }
+
+            if (!ProfilePictureFormats.contentMatches(temp, extension)) {
+                deleteQuietly(temp);
+                throw new InvalidProfilePictureException("Profile picture content is not a valid " + extension + " image");
+            }
+
+            String fileName = HexFormat.of().formatHex(digest.digest()) + "." + extension;
+            Path stored = root.resolve(fileName);
+            if (Files.exists(stored)) {
+                // Same content is already stored; refresh its age so the garbage collector's grace period covers
+                // the window until the referencing user row is saved
+                Files.delete(temp);
+                Files.setLastModifiedTime(stored, FileTime.from(Instant.now()));
+                return fileName;
+            }
+            // Readers see either no file or the complete one, never a partial write
+            Files.move(temp, stored, StandardCopyOption.ATOMIC_MOVE);
+            return fileName;
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new StorageException("Failed to store profile picture " + file.getOriginalFilename(), e);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static Instant lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toInstant();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete temporary upload {}", path, e);
+        }
+    }
+
+    // Feeds every byte read into the digest, so the content is hashed during the one pass that writes it
+    private static final class DigestingChannel implements ReadableByteChannel {
+        private final ReadableByteChannel delegate;
+        private final MessageDigest digest;
+
+        DigestingChannel(ReadableByteChannel delegate, MessageDigest digest) {
+            this.delegate = delegate;
+            this.digest = digest;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int start = dst.position();
+            int read = delegate.read(dst);
+            if (read > 0) {
+                ByteBuffer chunk = dst.duplicate();
+                chunk.position(start).limit(start + read);
+                digest.update(chunk);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
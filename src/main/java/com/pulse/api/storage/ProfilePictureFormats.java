@@ -0,0 +1,115 @@
+package com.pulse.api.storage;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The image formats profile pictures may have. Pictures are served to anyone from the API's origin, so a file the
+ * browser would render as HTML or SVG must never be stored or served inline under an image name.
+ */
+public final class ProfilePictureFormats {
+
+    private enum Format {
+        JPEG(MediaType.IMAGE_JPEG, "jpeg"),
+        PNG(MediaType.IMAGE_PNG, "png"),
+        GIF(MediaType.IMAGE_GIF, "gif"),
+        WEBP(MediaType.parseMediaType("image/webp"), null);
+
+        private final MediaType mediaType;
+        // ImageIO reader for the format, or null if the JDK has none
+        private final String imageIoFormat;
+
+        Format(MediaType mediaType, String imageIoFormat) {
+            this.mediaType = mediaType;
+            this.imageIoFormat = imageIoFormat;
+        }
+    }
+
+    private static final Map<String, Format> EXTENSIONS = Map.of(
+            "jpg", Format.JPEG, "jpeg", Format.JPEG, "png", Format.PNG, "gif", Format.GIF, "webp", Format.WEBP);
+
+    private static final int SIGNATURE_LENGTH = 12;
+
+    private ProfilePictureFormats() {
+    }
+
+    // The lower-cased extension of an accepted picture name, or empty for anything that is not a picture name
+    static Optional<String> extensionOf(String fileName) {
+        String extension = StringUtils.getFilenameExtension(fileName);
+        if (extension == null) {
+            return Optional.empty();
+        }
+        extension = extension.toLowerCase(Locale.ROOT);
+        return EXTENSIONS.containsKey(extension) ? Optional.of(extension) : Optional.empty();
+    }
+
+    // Content type to serve a stored file inline with, or empty if it must not be rendered by the browser
+    public static Optional<MediaType> mediaTypeOf(String fileName) {
+        return extensionOf(fileName).map(extension -> EXTENSIONS.get(extension).mediaType);
+    }
+
+    // Whether the file's bytes are an image of the format its extension names: the signature must match, and where
+    // ImageIO can read the format, the header must decode
+    static boolean contentMatches(Path file, String extension) throws IOException {
+        Format format = EXTENSIONS.get(extension);
+        byte[] header;
+        try (InputStream in = Files.newInputStream(file)) {
+            header = in.readNBytes(SIGNATURE_LENGTH);
+        }
+        if (format == null || !hasSignature(format, header)) {
+            return false;
+        }
+        return format.imageIoFormat == null || headerDecodes(file, format.imageIoFormat);
+    }
+
+    private static boolean hasSignature(Format format, byte[] header) {
+        return switch (format) {
+            case JPEG -> startsWith(header, new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF});
+            case PNG -> startsWith(header, new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'});
+            case GIF -> startsWith(header, ascii("GIF87a")) || startsWith(header, ascii("GIF89a"));
+            case WEBP -> header.length == SIGNATURE_LENGTH && startsWith(header, ascii("RIFF"))
+                    && Arrays.equals(header, 8, 12, ascii("WEBP"), 0, 4);
+        };
+    }
+
+    private static boolean headerDecodes(Path file, String imageIoFormat) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return false;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return reader.getFormatName().equalsIgnoreCase(imageIoFormat)
+                        && reader.getWidth(0) > 0 && reader.getHeight(0) > 0;
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        return bytes.length >= prefix.length && Arrays.equals(bytes, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,77 @@
+package com.pulse.api.storage;
+
+import com.pulse.api.repo.UserRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Deletes stored profile pictures that no user references any more, e.g. after a user replaced theirs. A file is
+ * referenced while some users.profile_picture equals its name, so the reference count is a query, not a column.
+ */
+@Component
+public class ProfilePictureGarbageCollector {
+    private static final Logger logger = LoggerFactory.getLogger(ProfilePictureGarbageCollector.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private final ProfilePictureStore profilePictureStore;
+    private final UserRepo userRepo;
+    private final Clock clock;
+    private final boolean enabled;
+    private final Duration gracePeriod;
+
+    @Autowired
+    public ProfilePictureGarbageCollector(ProfilePictureStore profilePictureStore, UserRepo userRepo,
+                                          @Value("${pulse.storage.gc.enabled:true}") boolean enabled,
+                                          @Value("${pulse.storage.gc.grace-period:1h}") Duration gracePeriod) {
+        this(profilePictureStore, userRepo, Clock.systemUTC(), enabled, gracePeriod);
+    }
+
+    ProfilePictureGarbageCollector(ProfilePictureStore profilePictureStore, UserRepo userRepo, Clock clock,
+                                   boolean enabled, Duration gracePeriod) {
+        this.profilePictureStore = profilePictureStore;
+        this.userRepo = userRepo;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.gracePeriod = gracePeriod;
+    }
+
+    @Scheduled(fixedDelayString = "${pulse.storage.gc.interval:PT1H}", initialDelayString = "${pulse.storage.gc.interval:PT1H}")
+    public void scheduledCollect() {
+        if (enabled) {
+            collect();
+        }
+    }
+
+    // Returns the number of deleted files
+    public int collect() {
+        // Files younger than the grace period may belong to an upload whose user row is not saved yet
+        Instant cutoff = clock.instant().minus(gracePeriod);
+        List<String> candidates = profilePictureStore.listStoredBefore(cutoff);
+
+        int deleted = 0;
+        for (int from = 0; from < candidates.size(); from += BATCH_SIZE) {
+            List<String> batch = candidates.subList(from, Math.min(from + BATCH_SIZE, candidates.size()));
+            Set<String> referenced = userRepo.findReferencedProfilePictures(batch);
+            for (String fileName : batch) {
+                if (!referenced.contains(fileName) && profilePictureStore.deleteIfStoredBefore(fileName, cutoff)) {
+                    deleted++;
+                }
+            }
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} unreferenced profile pictures", deleted);
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,106 @@
+package com.pulse.api.storage;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Scales a stored picture down to fit a square box, keeping its aspect ratio and format, into an existing target file.
+ * Pictures that ImageIO cannot decode or re-encode, or that already fit the box, are copied unchanged so the variant
+ * still exists afterwards.
+ */
+final class ProfilePictureResizer {
+
+    // Pictures with more pixels than this, about a 50 megapixel photo, are never decoded; the header alone can claim
+    // any size, and the decoder allocates its buffers from it
+    static final long MAX_PIXELS = 50_000_000L;
+
+    private ProfilePictureResizer() {
+    }
+
+    static void resize(Path original, Path target, int size) throws IOException {
+        String format = formatOf(original);
+        BufferedImage source = format == null ? null : read(original, size);
+        if (source == null || (source.getWidth() <= size && source.getHeight() <= size)) {
+            Files.copy(original, target, StandardCopyOption.REPLACE_EXISTING);
+            return;
+        }
+
+        double scale = Math.min((double) size / source.getWidth(), (double) size / source.getHeight());
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        // JPEG has no alpha channel; its writer rejects ARGB images
+        boolean alpha = source.getColorModel().hasAlpha() && !isJpeg(format);
+        BufferedImage scaled = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        try (OutputStream out = Files.newOutputStream(target)) {
+            if (!ImageIO.write(scaled, format, out)) {
+                throw new IOException("No ImageIO writer for " + format);
+            }
+        }
+    }
+
+    // Decodes only every n-th pixel of large pictures: a 4000px photo needs far less than full resolution for 512px
+    private static BufferedImage read(Path original, int size) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_PIXELS) {
+                    return null;
+                }
+                // The longest side must fit the box, so it decides the subsampling. Keep at least twice the target
+                // resolution so the final scaling still smooths the result
+                int subsampling = Math.max(1, Math.max(width, height) / (size * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Corrupt or unsupported image data: serve the original instead of failing the request
+            return null;
+        }
+    }
+
+    // ImageIO format name for the file's extension, or null if ImageIO cannot write it
+    private static String formatOf(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        String suffix = name.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return ImageIO.getImageWritersBySuffix(suffix).hasNext() ? suffix : null;
+    }
+
+    private static boolean isJpeg(String format) {
+        return format.equals("jpg") || format.equals("jpeg");
+    }
+}
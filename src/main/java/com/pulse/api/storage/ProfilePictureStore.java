@@ -0,0 +1,37 @@
+package com.pulse.api.storage;
+
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Storage backend for profile pictures. Implementations do their I/O off the calling thread, so callers should not
+ * hold a database transaction or connection while the returned future is pending.
+ */
+public interface ProfilePictureStore {
+
+    // Edge lengths, in pixels, of the square boxes that resized variants of every picture fit into
+    List<Integer> VARIANT_SIZES = List.of(48, 128, 512);
+
+    // Stores the upload under a name derived from its content and completes with that name; storing the same
+    // content twice yields the same name and a single file. Fails with InvalidProfilePictureException unless the
+    // upload is a picture in one of ProfilePictureFormats, under a matching name
+    CompletableFuture<String> store(MultipartFile file);
+
+    // The stored file, or empty if the name is unknown or not a valid stored name. Stored files never change
+    Optional<Resource> load(String fileName);
+
+    // The picture scaled down to fit a VARIANT_SIZES box, generated on first use if it does not exist yet; empty if
+    // the picture is unknown or the size is not one of VARIANT_SIZES
+    Optional<Resource> loadVariant(String fileName, int size);
+
+    // Names of all stored files, including abandoned temporary ones, last modified before the cutoff
+    List<String> listStoredBefore(Instant cutoff);
+
+    // Deletes the file and its variants unless it was modified at or after the cutoff; returns whether it was deleted
+    boolean deleteIfStoredBefore(String fileName, Instant cutoff);
+}
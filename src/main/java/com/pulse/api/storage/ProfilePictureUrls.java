@@ -0,0 +1,31 @@
+package com.pulse.api.storage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Links to stored profile pictures as served by {@code GET /api/users/profile-picture/{fileName}}.
+ */
+public final class ProfilePictureUrls {
+
+    public static final String BASE_PATH = "/api/users/profile-picture/";
+
+    private ProfilePictureUrls() {
+    }
+
+    public static String original(String fileName) {
+        return fileName == null ? null : BASE_PATH + fileName;
+    }
+
+    // Variant size in pixels to its URL, smallest first
+    public static Map<Integer, String> variants(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        Map<Integer, String> urls = new LinkedHashMap<>();
+        for (int size : ProfilePictureStore.VARIANT_SIZES) {
+            urls.put(size, BASE_PATH + fileName + "?size=" + size);
+        }
+        return urls;
+    }
+}
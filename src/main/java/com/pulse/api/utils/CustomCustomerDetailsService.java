@@ -1,41 +1,86 @@
 package com.pulse.api.utils;
 
+import com.pulse.api.cache.CoalescingUserLookups;
+import com.pulse.api.cache.UserCacheInvalidator;
+import com.pulse.api.enums.RoleAuthorities;
 import com.pulse.api.model.User;
 import com.pulse.api.repo.UserRepo;
+import com.pulse.api.security.UnknownIdentifierCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
+import java.util.List;
 
 @Service
-public class CustomCustomerDetailsService implements UserDetailsService {
+public class CustomCustomerDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepo userRepo;
+    private final CoalescingUserLookups userLookups;
+    private final UnknownIdentifierCache unknownIdentifiers;
+    private final UserCacheInvalidator userCacheInvalidator;
 
     @Autowired
-    public CustomCustomerDetailsService(UserRepo userRepo) {
+    public CustomCustomerDetailsService(UserRepo userRepo, CoalescingUserLookups userLookups,
+                                        UnknownIdentifierCache unknownIdentifiers,
+                                        UserCacheInvalidator userCacheInvalidator) {
         this.userRepo = userRepo;
+        this.userLookups = userLookups;
+        this.unknownIdentifiers = unknownIdentifiers;
+        this.userCacheInvalidator = userCacheInvalidator;
     }
 
     @Override
     public UserDetails loadUserByUsername(String identifier) throws UsernameNotFoundException {
-        // Check for user by username, email, or phone number
-        Optional<User> userOptional = userRepo.findByUsername(identifier)
-                .or(() -> userRepo.findByEmail(identifier))
-                .or(() -> userRepo.findByPhone(identifier));
+        long start = System.nanoTime();
+        // An identifier that recently matched nobody is answered without a query, after as long as a query takes
+        if (unknownIdentifiers.isUnknown(identifier)) {
+            unknownIdentifiers.awaitLookupTime(start);
+            throw new UsernameNotFoundException("User not found with identifier: " + identifier);
+        }
+
+        // Check for user by username, email, or phone number in a single query, shared with concurrent identical lookups
+        List<User> candidates = userLookups.findLoginCandidates(identifier);
 
         // Throw exception if user not found
-        User user = userOptional.orElseThrow(() ->
-                new UsernameNotFoundException("User not found with identifier: " + identifier));
+        User user = pickByPriority(candidates, identifier);
+        unknownIdentifiers.recordLookupTime(System.nanoTime() - start);
+        if (user == null) {
+            unknownIdentifiers.markUnknown(identifier);
+            throw new UsernameNotFoundException("User not found with identifier: " + identifier);
+        }
 
-        // Convert the User entity into Spring Security's UserDetails
+        // Convert the User entity into Spring Security's UserDetails. Every caller gets its own instance: the
+        // authentication manager erases the password of the one it returns
         return org.springframework.security.core.userdetails.User
                 .withUsername(user.getUsername()) // Use the actual username
                 .password(user.getPassword())
-                .roles(user.getRoles().stream().map(Enum::name).toArray(String[]::new)) // Convert roles to String array
+                .authorities(RoleAuthorities.forMask(user.getRoleMask())) // Precomputed authorities for the role bitmask
                 .build();
     }
+
+    // Called by the authentication provider after a successful login whose stored hash the encoder wants upgraded
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        if (userRepo.updatePassword(user.getUsername(), newPassword) > 0) {
+            // The bulk update bypassed the cached entity, which would keep serving the old hash to logins
+            userRepo.findIdByUsername(user.getUsername()).ifPresent(userCacheInvalidator::invalidateAfterBulkUpdate);
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+
+    // A username match wins over another user's email or phone, as with the former sequential lookups
+    private static User pickByPriority(List<User> candidates, String identifier) {
+        for (User candidate : candidates) {
+            if (identifier.equals(candidate.getUsername())) {
+                return candidate;
+            }
+        }
+        return candidates.isEmpty() ? null : candidates.get(0);
+    }
 }
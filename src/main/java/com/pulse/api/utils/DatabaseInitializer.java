@@ -7,12 +7,14 @@ import com.pulse.api.model.User;
 import com.pulse.api.repo.UserRepo;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.HashSet;
+import java.util.EnumSet;
 
 @Service
+@DependsOn("schemaMigrator")
 public class DatabaseInitializer {
 
     private final UserRepo userRepository;
@@ -39,10 +41,7 @@ public class DatabaseInitializer {
             user.setBio("This is Suman's bio.");
 
             // Setting roles
-            HashSet<RoleName> roles = new HashSet<>();
-            roles.add(RoleName.ADMIN);
-            roles.add(RoleName.NORMAL);
-            user.setRoles(roles);
+            user.setRoles(EnumSet.of(RoleName.ADMIN, RoleName.NORMAL));
 
             user.setCreatedAt(LocalDateTime.now());
             user.setUpdatedAt(LocalDateTime.now());
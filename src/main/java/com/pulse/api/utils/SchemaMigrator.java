@@ -0,0 +1,138 @@
+package com.pulse.api.utils;
+
+import com.pulse.api.enums.RoleName;
+import com.pulse.api.model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data migrations that ddl-auto=update cannot express. Runs once Hibernate has updated the schema and before
+ * {@link DatabaseInitializer} seeds any data.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class SchemaMigrator {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    private static final String LEGACY_ROLES_TABLE = "user_roles";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Dialect dialect;
+
+    @Value("${pulse.roles.migrate-legacy-table:true}")
+    private boolean migrateLegacyRoles;
+
+    @Autowired
+    public SchemaMigrator(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                          EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    @PostConstruct
+    public void migrate() {
+        migrateLegacyRoles();
+        alignUserIdSequence();
+        dropUnnamedUniqueConstraints();
+    }
+
+    // Before the unique constraints on users were named, Hibernate generated names for them; ddl-auto=update then adds
+    // the named ones next to the old ones, and every insert would maintain two unique indexes per column
+    private void dropUnnamedUniqueConstraints() {
+        Map<String, String> namedConstraints = Map.of(
+                "username", User.USERNAME_CONSTRAINT,
+                "email", User.EMAIL_CONSTRAINT,
+                "phone", User.PHONE_CONSTRAINT);
+        namedConstraints.forEach((column, name) -> {
+            List<String> constraints = jdbcTemplate.queryForList(
+                    "SELECT tc.constraint_name FROM information_schema.table_constraints tc "
+                            + "JOIN information_schema.key_column_usage kcu "
+                            + "ON kcu.constraint_schema = tc.constraint_schema AND kcu.constraint_name = tc.constraint_name "
+                            + "WHERE LOWER(tc.table_name) = 'users' AND tc.constraint_type = 'UNIQUE' "
+                            + "AND LOWER(kcu.column_name) = ?", String.class, column);
+            if (constraints.stream().noneMatch(name::equalsIgnoreCase)) {
+                return;
+            }
+            for (String constraint : constraints) {
+                if (!constraint.equalsIgnoreCase(name)) {
+                    jdbcTemplate.execute("ALTER TABLE users DROP CONSTRAINT " + constraint);
+                    logger.info("Dropped unique constraint {} on users.{}, superseded by {}", constraint, column, name);
+                }
+            }
+        });
+    }
+
+    // users.id used to be an IDENTITY column; the new sequence starts at 1 and would hand out ids that already exist.
+    // Runs on every startup, so the sequence is only read: calling nextval would throw away a block of ids each time
+    private void alignUserIdSequence() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM users", Long.class);
+        if (maxId == null) {
+            return;
+        }
+        Long next = peekUserIdSequence();
+        // The pooled optimizer treats a sequence value as the highest id of its block
+        if (next != null && next - User.ID_ALLOCATION_SIZE < maxId) {
+            long restart = maxId + User.ID_ALLOCATION_SIZE;
+            jdbcTemplate.execute("ALTER SEQUENCE " + User.ID_SEQUENCE + " RESTART WITH " + restart);
+            logger.info("Restarted {} at {} to stay above the existing user ids", User.ID_SEQUENCE, restart);
+        }
+    }
+
+    // The value the next nextval will return. Hibernate creates the sequence with an increment of ID_ALLOCATION_SIZE
+    private Long peekUserIdSequence() {
+        if (dialect instanceof PostgreSQLDialect) {
+            // last_value was already handed out unless the sequence is new or was just restarted
+            return jdbcTemplate.queryForObject("SELECT CASE WHEN is_called THEN last_value + " + User.ID_ALLOCATION_SIZE
+                    + " ELSE last_value END FROM " + User.ID_SEQUENCE, Long.class);
+        }
+        // H2 keeps the next value in BASE_VALUE
+        return jdbcTemplate.queryForObject(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE LOWER(SEQUENCE_NAME) = ?",
+                Long.class, User.ID_SEQUENCE);
+    }
+
+    // Copies the former @ElementCollection rows (user_roles.user_id, user_roles.roles) into users.role_mask
+    private void migrateLegacyRoles() {
+        if (!tableExists(LEGACY_ROLES_TABLE)) {
+            return;
+        }
+        if (!migrateLegacyRoles) {
+            logger.warn("Legacy table {} still exists; roles in it are ignored until it is migrated", LEGACY_ROLES_TABLE);
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (RoleName role : RoleName.values()) {
+                // Each role occurs at most once per user and role_mask starts at 0, so adding the bit sets it
+                int updated = jdbcTemplate.update(
+                        "UPDATE users SET role_mask = role_mask + ? WHERE id IN (SELECT user_id FROM " + LEGACY_ROLES_TABLE + " WHERE roles = ?)",
+                        role.mask(), role.name());
+                logger.info("Migrated role {} for {} users into users.role_mask", role, updated);
+            }
+            // Dropping the table also drops its foreign key to users, which would otherwise block user deletes
+            jdbcTemplate.execute("DROP TABLE " + LEGACY_ROLES_TABLE);
+        });
+    }
+
+    private boolean tableExists(String tableName) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.tables WHERE LOWER(table_name) = ?", Integer.class, tableName);
+        return count != null && count > 0;
+    }
+}
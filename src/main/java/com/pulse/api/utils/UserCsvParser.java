@@ -0,0 +1,151 @@
+package com.pulse.api.utils;
+
+import com.pulse.api.dto.UserImportRow;
+import com.pulse.api.enums.Gender;
+import com.pulse.api.enums.RelationshipStatus;
+import com.pulse.api.enums.RoleName;
+import com.pulse.api.exceptions.InvalidImportException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads users for a bulk import from CSV. The first line names the columns (UserImportRow's field names, in any order
+ * and case); fields may be double-quoted, with "" for a quote inside them. Roles are separated by ';'.
+ */
+public final class UserCsvParser {
+
+    private static final List<String> COLUMNS = List.of("firstname", "middlename", "lastname", "username", "email",
+            "password", "phone", "country", "gender", "relationshipstatus", "bio", "roles");
+
+    private UserCsvParser() {
+    }
+
+    public static List<UserImportRow> parse(Reader reader, int maxRows) {
+        try (BufferedReader lines = new BufferedReader(reader)) {
+            String header = lines.readLine();
+            if (header == null) {
+                throw new InvalidImportException("CSV import is empty");
+            }
+            Map<String, Integer> columns = columns(split(header, 1));
+
+            List<UserImportRow> rows = new ArrayList<>();
+            int lineNumber = 1;
+            String line;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (rows.size() == maxRows) {
+                    throw new InvalidImportException("Import is limited to " + maxRows + " rows");
+                }
+                rows.add(toRow(split(line, lineNumber), columns, lineNumber));
+            }
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<String, Integer> columns(List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+            if (!COLUMNS.contains(name)) {
+                throw new InvalidImportException("Unknown CSV column '" + header.get(i).trim() + "'");
+            }
+            columns.put(name, i);
+        }
+        return columns;
+    }
+
+    private static UserImportRow toRow(List<String> fields, Map<String, Integer> columns, int lineNumber) {
+        return new UserImportRow(
+                field(fields, columns, "firstname"),
+                field(fields, columns, "middlename"),
+                field(fields, columns, "lastname"),
+                field(fields, columns, "username"),
+                field(fields, columns, "email"),
+                field(fields, columns, "password"),
+                field(fields, columns, "phone"),
+                field(fields, columns, "country"),
+                enumField(Gender.class, field(fields, columns, "gender"), lineNumber),
+                enumField(RelationshipStatus.class, field(fields, columns, "relationshipstatus"), lineNumber),
+                field(fields, columns, "bio"),
+                roles(field(fields, columns, "roles"), lineNumber));
+    }
+
+    // Missing columns and empty fields are both null
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static <E extends Enum<E>> E enumField(Class<E> type, String value, int lineNumber) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidImportException("Line " + lineNumber + ": unknown " + type.getSimpleName() + " '" + value + "'");
+        }
+    }
+
+    private static Set<RoleName> roles(String value, int lineNumber) {
+        Set<RoleName> roles = EnumSet.noneOf(RoleName.class);
+        if (value != null) {
+            for (String role : value.split(";")) {
+                if (!role.isBlank()) {
+                    roles.add(enumField(RoleName.class, role.trim(), lineNumber));
+                }
+            }
+        }
+        return roles;
+    }
+
+    static List<String> split(String line, int lineNumber) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new InvalidImportException("Line " + lineNumber + ": unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,104 @@
+package com.pulse.api.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final SingleFlight<String, String> flight = new SingleFlight<>();
+
+    @Test
+    void testExecute_ConcurrentCallersShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> flight.execute("johndoe", () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "user";
+                })));
+            }
+            // Let every caller either start the load or join it before the load completes
+            waitUntil(() -> flight.coalescedCount() == CALLERS - 1);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("user", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, flight.inFlightCount());
+    }
+
+    @Test
+    void testExecute_WaitingCallersGetTheLoadersException() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("database unavailable");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> flight.execute("johndoe", () -> {
+                await(release);
+                throw failure;
+            }));
+            waitUntil(() -> flight.inFlightCount() == 1);
+            Future<String> follower = executor.submit(() -> flight.execute("johndoe", () -> "unexpected"));
+            waitUntil(() -> flight.coalescedCount() == 1);
+            release.countDown();
+
+            assertSame(failure, assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+            assertSame(failure, assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS)).getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExecute_KeepsNoResultAfterCompletion() {
+        assertEquals("first", flight.execute("johndoe", () -> "first"));
+        assertEquals("second", flight.execute("johndoe", () -> "second"));
+        assertEquals(0, flight.inFlightCount());
+        assertEquals(0, flight.coalescedCount());
+    }
+
+    @Test
+    void testExecute_DifferentKeysLoadIndependently() {
+        String outer = flight.execute("johndoe", () -> "john:" + flight.execute("janedoe", () -> "jane"));
+
+        assertEquals("john:jane", outer);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached");
+            Thread.sleep(1);
+        }
+    }
+}
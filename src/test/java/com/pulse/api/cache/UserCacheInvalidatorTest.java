@@ -0,0 +1,124 @@
+package com.pulse.api.cache;
+
+import com.pulse.api.model.User;
+import org.hibernate.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.mockito.Mockito.*;
+
+class UserCacheInvalidatorTest {
+
+    private Cache firstCache;
+    private Cache secondCache;
+    private UserCacheInvalidator first;
+    private UserCacheInvalidator second;
+
+    @BeforeEach
+    void setUp() {
+        // Two nodes sharing an in-process stand-in for the invalidation channel
+        InProcessChannel bus = new InProcessChannel();
+        firstCache = mock(Cache.class);
+        secondCache = mock(Cache.class);
+        first = new UserCacheInvalidator(firstCache, bus.connect());
+        second = new UserCacheInvalidator(secondCache, bus.connect());
+    }
+
+    @Test
+    void testInvalidate_EvictsUserOnOtherNodesOnly() {
+        first.invalidate(42L);
+
+        verify(secondCache).evictEntityData(User.class, 42L);
+        verify(secondCache).evictNaturalIdData(User.class);
+        verify(secondCache).evictQueryRegion(User.EMAIL_QUERY_CACHE_REGION);
+        verifyNoInteractions(firstCache);
+    }
+
+    @Test
+    void testInvalidateAll_EvictsAllUsersOnOtherNodes() {
+        second.invalidateAll();
+
+        verify(firstCache).evictEntityData(User.class);
+        verify(firstCache).evictNaturalIdData(User.class);
+        verify(firstCache).evictQueryRegion(User.EMAIL_QUERY_CACHE_REGION);
+        verifyNoInteractions(secondCache);
+    }
+
+    @Test
+    void testInvalidate_InTransactionPublishesAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            first.invalidate(42L);
+            verifyNoInteractions(secondCache);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(secondCache).evictEntityData(User.class, 42L);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testInvalidateAfterBulkUpdate_EvictsUserOnEveryNode() {
+        first.invalidateAfterBulkUpdate(42L);
+
+        verify(firstCache).evictEntityData(User.class, 42L);
+        verify(secondCache).evictEntityData(User.class, 42L);
+    }
+
+    @Test
+    void testInvalidate_WithoutChannelLeavesCacheToHibernate() {
+        Cache cache = mock(Cache.class);
+        UserCacheInvalidator singleNode = new UserCacheInvalidator(cache, null);
+
+        singleNode.invalidate(42L);
+        singleNode.invalidateAll();
+
+        verifyNoInteractions(cache);
+    }
+
+    // Delivers each message synchronously to every connected node except its sender
+    private static final class InProcessChannel {
+
+        private final List<Node> nodes = new CopyOnWriteArrayList<>();
+
+        Node connect() {
+            Node node = new Node();
+            nodes.add(node);
+            return node;
+        }
+
+        private final class Node implements UserCacheInvalidationChannel {
+
+            private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+            @Override
+            public void publish(long userId) {
+                for (Node node : nodes) {
+                    if (node != this) {
+                        node.listeners.forEach(listener -> listener.userChanged(userId));
+                    }
+                }
+            }
+
+            @Override
+            public void publishAll() {
+                for (Node node : nodes) {
+                    if (node != this) {
+                        node.listeners.forEach(Listener::allChanged);
+                    }
+                }
+            }
+
+            @Override
+            public void subscribe(Listener listener) {
+                listeners.add(listener);
+            }
+        }
+    }
+}
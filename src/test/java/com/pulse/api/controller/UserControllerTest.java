@@ -1,23 +1,42 @@
 package com.pulse.api.controller;
 
 import com.pulse.api.dto.UserDto;
+import com.pulse.api.dto.UserImportResult;
+import com.pulse.api.dto.UserImportRow;
+import com.pulse.api.dto.UserPage;
+import com.pulse.api.dto.UserPatch;
+import com.pulse.api.dto.UserResponse;
 import com.pulse.api.exceptions.ResourceNotFoundException;
+import com.pulse.api.service.UserImportService;
 import com.pulse.api.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -31,9 +50,15 @@ class UserControllerTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private UserImportService userImportService;
+
     @Mock
     private BindingResult bindingResult;
 
+    @TempDir
+    Path tempDir;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -45,9 +70,9 @@ class UserControllerTest {
         userDto.setUsername("johndoe");
 
         when(bindingResult.hasErrors()).thenReturn(false);
-        when(userService.createUser(any(UserDto.class))).thenReturn(userDto);
+        when(userService.createUser(any(UserDto.class))).thenReturn(CompletableFuture.completedFuture(userDto));
 
-        ResponseEntity<?> response = userController.createUser(userDto, bindingResult);
+        ResponseEntity<?> response = userController.createUser(userDto, bindingResult).join();
 
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         Map<String, Object> responseBody = (Map<String, Object>) response.getBody();
@@ -60,7 +85,7 @@ class UserControllerTest {
         when(bindingResult.hasErrors()).thenReturn(true);
         when(bindingResult.getFieldErrors()).thenReturn(Collections.singletonList(new FieldError("userDto", "username", "Username is required")));
 
-        ResponseEntity<?> response = userController.createUser(new UserDto(), bindingResult);
+        ResponseEntity<?> response = userController.createUser(new UserDto(), bindingResult).join();
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         Map<String, String> errors = (Map<String, String>) response.getBody();
@@ -76,18 +101,17 @@ class UserControllerTest {
         // Mock the BindingResult to not have errors
         when(bindingResult.hasErrors()).thenReturn(false);
 
-        // Mock the service method to return the updated UserDto
-        when(userService.updateUser(eq(userId), any(UserDto.class))).thenReturn(userDto);
+        // Mock the service method to return the user as saved
+        UserResponse updatedUser = userResponse(userId, "johnsmith");
+        when(userService.updateUser(eq(userId), any(UserDto.class), isNull())).thenReturn(CompletableFuture.completedFuture(updatedUser));
 
-        // Mock the findUserById method to return the updated userDto
-        when(userService.findUserById(userId)).thenReturn(userDto);
-
-        ResponseEntity<?> response = userController.updateUser(userId, userDto, bindingResult);
+        ResponseEntity<?> response = userController.updateUser(userId, userDto, bindingResult, null).join();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         Map<String, Object> responseBody = (Map<String, Object>) response.getBody();
         assertEquals("User 'johnsmith' updated successfully", responseBody.get("message"));
-        assertEquals(userDto, responseBody.get("user"));
+        assertEquals(updatedUser, responseBody.get("user"));
+        verify(userService, never()).findUserById(anyLong());
     }
 
 
@@ -98,27 +122,43 @@ class UserControllerTest {
         when(bindingResult.hasErrors()).thenReturn(true);
         when(bindingResult.getFieldErrors()).thenReturn(Collections.singletonList(new FieldError("userDto", "username", "Username is required")));
 
-        ResponseEntity<?> response = userController.updateUser(userId, new UserDto(), bindingResult);
+        ResponseEntity<?> response = userController.updateUser(userId, new UserDto(), bindingResult, null).join();
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         Map<String, String> errors = (Map<String, String>) response.getBody();
         assertEquals("Username is required", errors.get("username"));
     }
 
+    @Test
+    void testPatchUser_Success() {
+        Long userId = 1L;
+        UserPatch patch = new UserPatch(null, null, null, "johnsmith", null, null, null, null, null, null, null);
+        UserResponse updatedUser = userResponse(userId, "johnsmith");
+        when(userService.patchUser(userId, patch, 3L)).thenReturn(updatedUser);
+
+        ResponseEntity<Map<String, Object>> response = userController.patchUser(userId, patch, "\"1-3\"");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"1-4\"", response.getHeaders().getETag());
+        assertEquals("User 'johnsmith' updated successfully", response.getBody().get("message"));
+        assertEquals(updatedUser, response.getBody().get("user"));
+        // The patched user is returned as saved, not fetched again
+        verify(userService, never()).findUserById(any());
+    }
+
     @Test
     void testGetUserById_Success() {
         Long userId = 1L;
-        UserDto userDto = new UserDto();
-        userDto.setUsername("johndoe");
+        UserResponse user = userResponse(userId, "johndoe");
 
-        when(userService.findUserById(userId)).thenReturn(userDto);
+        when(userService.findUserById(userId)).thenReturn(user);
 
-        ResponseEntity<Map<String, Object>> response = userController.getUserById(userId);
+        ResponseEntity<Map<String, Object>> response = userController.getUserById(userId, new ServletWebRequest(new MockHttpServletRequest()));
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         Map<String, Object> responseBody = response.getBody();
         assertEquals("User with id 1 fetched successfully", responseBody.get("message"));
-        assertEquals(userDto, responseBody.get("user"));
+        assertEquals(user, responseBody.get("user"));
     }
 
     @Test
@@ -126,36 +166,76 @@ class UserControllerTest {
         Long userId = 1L;
         when(userService.findUserById(userId)).thenThrow(new ResourceNotFoundException("User not found"));
 
-        ResponseEntity<Map<String, Object>> response = userController.getUserById(userId);
+        ResponseEntity<Map<String, Object>> response = userController.getUserById(userId, new ServletWebRequest(new MockHttpServletRequest()));
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         Map<String, Object> responseBody = response.getBody();
         assertEquals("User not found", responseBody.get("message"));
     }
 
+    @Test
+    void testGetUserById_SetsETagFromVersion() {
+        when(userService.findUserById(1L)).thenReturn(userResponse(1L, "johndoe"));
+
+        ResponseEntity<Map<String, Object>> response = userController.getUserById(1L,
+                new ServletWebRequest(new MockHttpServletRequest()));
+
+        assertEquals("\"1-4\"", response.getHeaders().getETag());
+        // Without If-None-Match there is nothing to revalidate
+        verify(userService, never()).findUserVersion(any());
+    }
+
+    @Test
+    void testGetUserById_NotModifiedWithoutLoadingUser() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/id/1");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"1-4\"");
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        when(userService.findUserVersion(1L)).thenReturn(Optional.of(4L));
+
+        ResponseEntity<Map<String, Object>> response = userController.getUserById(1L,
+                new ServletWebRequest(request, servletResponse));
+
+        assertNull(response);
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), servletResponse.getStatus());
+        verify(userService, never()).findUserById(any());
+    }
+
+    @Test
+    void testGetUserById_ChangedVersionReturnsUser() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/id/1");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"1-3\"");
+        when(userService.findUserVersion(1L)).thenReturn(Optional.of(4L));
+        when(userService.findUserById(1L)).thenReturn(userResponse(1L, "johndoe"));
+
+        ResponseEntity<Map<String, Object>> response = userController.getUserById(1L,
+                new ServletWebRequest(request, new MockHttpServletResponse()));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"1-4\"", response.getHeaders().getETag());
+    }
+
     @Test
     void testGetAllUsers() {
-        UserDto user1 = new UserDto();
-        UserDto user2 = new UserDto();
-        List<UserDto> userList = List.of(user1, user2);
+        UserResponse user1 = userResponse(1L, "johndoe");
+        UserResponse user2 = userResponse(2L, "janedoe");
+        List<UserResponse> userList = List.of(user1, user2);
 
-        when(userService.getAllUsers()).thenReturn(userList);
+        when(userService.getUsersPage("MTA", 2)).thenReturn(new UserPage(userList, "MTI"));
 
-        ResponseEntity<Map<String, Object>> response = userController.getAllUsers();
+        ResponseEntity<Map<String, Object>> response = userController.getAllUsers("MTA", 2);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         Map<String, Object> responseBody = response.getBody();
         assertEquals("All users fetched successfully", responseBody.get("message"));
         assertEquals(userList, responseBody.get("users"));
+        assertEquals("MTI", responseBody.get("nextCursor"));
     }
 
     @Test
     void testDeleteUser_Success() {
         Long userId = 1L;
-        UserDto userDto = new UserDto();
-        userDto.setUsername("johndoe");
 
-        when(userService.findUserById(userId)).thenReturn(userDto);
+        when(userService.findUserById(userId)).thenReturn(userResponse(userId, "johndoe"));
 
         ResponseEntity<?> response = userController.deleteUser(userId);
 
@@ -194,11 +274,130 @@ class UserControllerTest {
     void testUploadProfilePicture_Success() {
         int userId = 1;
         MultipartFile file = mock(MultipartFile.class);
+        when(userService.updateUserProfilePicture(userId, file)).thenReturn(CompletableFuture.completedFuture(null));
 
-        ResponseEntity<?> response = userController.uploadProfilePicture(userId, file);
+        ResponseEntity<?> response = userController.uploadProfilePicture(userId, file).join();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Profile picture uploaded successfully", response.getBody());
         verify(userService, times(1)).updateUserProfilePicture(userId, file);
     }
+
+    @Test
+    void testGetProfilePicture_NotFound() throws IOException {
+        when(userService.loadProfilePicture("missing.png", null)).thenReturn(Optional.empty());
+
+        ResponseEntity<Resource> response = userController.getProfilePicture("missing.png", null,
+                new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse());
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void testGetProfilePicture_ServedAsResourceWithoutSendfile() throws IOException {
+        Resource picture = pictureFile("abc123.png");
+        when(userService.loadProfilePicture("abc123.png", null)).thenReturn(Optional.of(picture));
+
+        ResponseEntity<Resource> response = userController.getProfilePicture("abc123.png", null,
+                new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"abc123\"", response.getHeaders().getETag());
+        assertEquals("image/png", response.getHeaders().getContentType().toString());
+        assertTrue(response.getHeaders().getCacheControl().contains("immutable"));
+        assertSame(picture, response.getBody());
+    }
+
+    @Test
+    void testGetProfilePicture_HandsFileToContainerSendfile() throws IOException {
+        Resource picture = pictureFile("abc123.png");
+        when(userService.loadProfilePicture("abc123.png", null)).thenReturn(Optional.of(picture));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertNull(userController.getProfilePicture("abc123.png", null, request, response));
+
+        assertEquals(picture.getFile().getAbsolutePath(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(3L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(3L, response.getContentLengthLong());
+        assertEquals("\"abc123\"", response.getHeader("ETag"));
+    }
+
+    @Test
+    void testGetProfilePicture_NotModified() throws IOException {
+        when(userService.loadProfilePicture("abc123.png", null)).thenReturn(Optional.of(pictureFile("abc123.png")));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("If-None-Match", "\"abc123\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertNull(userController.getProfilePicture("abc123.png", null, request, response));
+
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        assertNull(request.getAttribute("org.apache.tomcat.sendfile.filename"));
+    }
+
+    @Test
+    void testGetProfilePicture_NonImageIsDownloadedNotRendered() throws IOException {
+        Resource stored = pictureFile("abc123.html");
+        when(userService.loadProfilePicture("abc123.html", null)).thenReturn(Optional.of(stored));
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        ResponseEntity<Resource> response = userController.getProfilePicture("abc123.html", null,
+                new MockHttpServletRequest("GET", "/"), servletResponse);
+
+        assertEquals(MediaType.APPLICATION_OCTET_STREAM, response.getHeaders().getContentType());
+        assertEquals("attachment", response.getHeaders().getContentDisposition().getType());
+        assertEquals("nosniff", servletResponse.getHeader("X-Content-Type-Options"));
+    }
+
+    @Test
+    void testGetProfilePicture_ImageIsRenderedWithoutSniffing() throws IOException {
+        when(userService.loadProfilePicture("abc123.webp", null)).thenReturn(Optional.of(pictureFile("abc123.webp")));
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        ResponseEntity<Resource> response = userController.getProfilePicture("abc123.webp", null,
+                new MockHttpServletRequest("GET", "/"), servletResponse);
+
+        assertEquals("image/webp", response.getHeaders().getContentType().toString());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        assertEquals("nosniff", servletResponse.getHeader("X-Content-Type-Options"));
+    }
+
+    @Test
+    void testGetProfilePicture_VariantHasItsOwnETag() throws IOException {
+        when(userService.loadProfilePicture("abc123.png", 48)).thenReturn(Optional.of(pictureFile("abc123.png")));
+
+        ResponseEntity<Resource> response = userController.getProfilePicture("abc123.png", 48,
+                new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse());
+
+        assertEquals("\"abc123-48\"", response.getHeaders().getETag());
+    }
+
+    private Resource pictureFile(String fileName) throws IOException {
+        return new FileSystemResource(Files.write(tempDir.resolve(fileName), new byte[]{1, 2, 3}));
+    }
+
+    private static UserResponse userResponse(Long id, String username) {
+        return new UserResponse(id, null, null, null, username, null, null, null, null, null, null, null, null, null, null, null, 4L);
+    }
+
+    @Test
+    void testImportUsersCsv_ReportsEachRow() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/users/import");
+        request.setContentType("text/csv");
+        request.setContent("username,email,password,firstName,lastName\nalice,alice@x.com,password1,A,B\n".getBytes());
+        List<UserImportResult> results = List.of(UserImportResult.created(1, "alice", 7L));
+        when(userImportService.getMaxRows()).thenReturn(100);
+        when(userImportService.importUsers(any())).thenReturn(results);
+
+        ResponseEntity<Map<String, Object>> response = userController.importUsersCsv(request);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("Imported 1 of 1 users", response.getBody().get("message"));
+        assertEquals(results, response.getBody().get("results"));
+        verify(userImportService).importUsers(argThat((List<UserImportRow> rows) ->
+                rows.size() == 1 && rows.get(0).username().equals("alice")));
+    }
 }
@@ -0,0 +1,81 @@
+package com.pulse.api.jwt;
+
+import com.pulse.api.utils.CustomCustomerDetailsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtRequestFilterTest {
+
+    private static final String TOKEN = "header.payload.signature";
+
+    @InjectMocks
+    private JwtRequestFilter jwtRequestFilter;
+
+    @Mock
+    private CustomCustomerDetailsService userDetailsService;
+
+    @Mock
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Mock
+    private TokenVersionChecker tokenVersionChecker;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        VerifiedToken token = new VerifiedToken("johndoe", List.of("ROLE_NORMAL"),
+                Instant.now(), Instant.now().plusSeconds(300), 1);
+        when(verifiedTokenCache.verify(TOKEN)).thenReturn(token);
+        when(userDetailsService.loadUserByUsername("johndoe")).thenReturn(User.withUsername("johndoe")
+                .password("hash")
+                .authorities("ROLE_NORMAL")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testDoFilter_StatefulAuthenticatesCurrentToken() throws Exception {
+        when(tokenVersionChecker.isCurrent(any())).thenReturn(true);
+
+        jwtRequestFilter.doFilter(bearerRequest(), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertEquals("johndoe", SecurityContextHolder.getContext().getAuthentication().getName());
+    }
+
+    @Test
+    void testDoFilter_StatefulRejectsRevokedToken() throws Exception {
+        when(tokenVersionChecker.isCurrent(any())).thenReturn(false);
+        MockFilterChain chain = new MockFilterChain();
+
+        jwtRequestFilter.doFilter(bearerRequest(), new MockHttpServletResponse(), chain);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertNotNull(chain.getRequest());
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    private static MockHttpServletRequest bearerRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/1");
+        request.addHeader("Authorization", "Bearer " + TOKEN);
+        return request;
+    }
+}
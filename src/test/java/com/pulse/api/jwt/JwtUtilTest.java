@@ -0,0 +1,72 @@
+package com.pulse.api.jwt;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "superSecretKeyHere";
+
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil(SECRET);
+    }
+
+    @Test
+    void testVerify_Success() {
+        String token = jwtUtil.generateToken("johndoe", List.of("ROLE_ADMIN", "ROLE_NORMAL"));
+
+        VerifiedToken verified = jwtUtil.verify(token);
+
+        assertEquals("johndoe", verified.getSubject());
+        assertEquals(List.of("ROLE_ADMIN", "ROLE_NORMAL"), verified.getRoles());
+        assertNotNull(verified.getIssuedAt());
+        assertTrue(verified.getExpiration().isAfter(verified.getIssuedAt()));
+        assertTrue(jwtUtil.validateToken(token, "johndoe"));
+    }
+
+    @Test
+    void testVerify_TokenVersion() {
+        assertEquals(3, jwtUtil.verify(jwtUtil.generateToken("johndoe", List.of(), 3)).getTokenVersion());
+    }
+
+    @Test
+    void testVerify_AcceptsTokensSignedWithStringKey() {
+        // Tokens issued before the key was pre-decoded must still verify
+        String token = Jwts.builder().setSubject("johndoe")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(SignatureAlgorithm.HS256, SECRET).compact();
+
+        VerifiedToken verified = jwtUtil.verify(token);
+        assertEquals("johndoe", verified.getSubject());
+        assertEquals(0, verified.getTokenVersion());
+    }
+
+    @Test
+    void testVerify_TamperedToken() {
+        String token = jwtUtil.generateToken("johndoe", List.of("ROLE_NORMAL"));
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertThrows(JwtException.class, () -> jwtUtil.verify(tampered));
+    }
+
+    @Test
+    void testVerify_ExpiredToken() {
+        String token = Jwts.builder().setSubject("johndoe")
+                .setExpiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(SignatureAlgorithm.HS256, SECRET).compact();
+
+        assertThrows(ExpiredJwtException.class, () -> jwtUtil.verify(token));
+    }
+}
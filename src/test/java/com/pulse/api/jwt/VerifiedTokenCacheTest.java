@@ -0,0 +1,54 @@
+package com.pulse.api.jwt;
+
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+
+    private JwtUtil jwtUtil;
+    private SimpleMeterRegistry meterRegistry;
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil("superSecretKeyHere");
+        meterRegistry = new SimpleMeterRegistry();
+        verifiedTokenCache = new VerifiedTokenCache(jwtUtil, meterRegistry, true, 100, Duration.ofMinutes(15));
+    }
+
+    @Test
+    void testVerify_SecondCallIsServedFromCache() {
+        String token = jwtUtil.generateToken("johndoe", List.of("ROLE_NORMAL"));
+
+        VerifiedToken first = verifiedTokenCache.verify(token);
+        VerifiedToken second = verifiedTokenCache.verify(token);
+
+        assertSame(first, second);
+        assertEquals(1, verifiedTokenCache.stats().hitCount());
+        assertEquals(1, verifiedTokenCache.stats().missCount());
+        assertNotNull(meterRegistry.find("cache.gets").tag("cache", "jwt.verified-tokens").functionCounter());
+    }
+
+    @Test
+    void testVerify_InvalidTokenIsNotCached() {
+        assertThrows(JwtException.class, () -> verifiedTokenCache.verify("not.a.token"));
+
+        assertEquals(0, verifiedTokenCache.estimatedSize());
+    }
+
+    @Test
+    void testVerify_Disabled() {
+        VerifiedTokenCache disabled = new VerifiedTokenCache(jwtUtil, meterRegistry, false, 100, Duration.ofMinutes(15));
+        String token = jwtUtil.generateToken("johndoe", List.of("ROLE_NORMAL"));
+
+        assertNotSame(disabled.verify(token), disabled.verify(token));
+        assertEquals(0, disabled.estimatedSize());
+    }
+}
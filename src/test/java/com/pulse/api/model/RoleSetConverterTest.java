@@ -0,0 +1,40 @@
+package com.pulse.api.model;
+
+import com.pulse.api.enums.RoleName;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoleSetConverterTest {
+
+    private final RoleSetConverter converter = new RoleSetConverter();
+
+    @Test
+    void testRoundTrip() {
+        Set<RoleName> roles = EnumSet.of(RoleName.ADMIN, RoleName.NORMAL);
+
+        Integer mask = converter.convertToDatabaseColumn(roles);
+
+        assertEquals(RoleName.ADMIN.mask() | RoleName.NORMAL.mask(), mask);
+        assertEquals(roles, converter.convertToEntityAttribute(mask));
+    }
+
+    @Test
+    void testNullAndEmpty() {
+        assertEquals(0, converter.convertToDatabaseColumn(null));
+        assertTrue(converter.convertToEntityAttribute(null).isEmpty());
+        assertTrue(converter.convertToEntityAttribute(0).isEmpty());
+    }
+
+    @Test
+    void testAuthoritiesFromMask() {
+        int mask = RoleName.maskOfAuthorities(List.of("ROLE_NORMAL", "ROLE_UNKNOWN"));
+
+        assertEquals(RoleName.NORMAL.mask(), mask);
+        assertEquals(RoleName.fromMask(mask), Set.of(RoleName.NORMAL));
+    }
+}
@@ -0,0 +1,36 @@
+package com.pulse.api.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BCryptStrengthCalibratorTest {
+
+    private static final long TEN_MILLIS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void testStrengthFor_PicksHighestStrengthWithinBudget() {
+        // 10ms at strength 10: 20ms at 11, 40ms at 12, 80ms at 13, 160ms at 14
+        assertEquals(13, BCryptStrengthCalibrator.strengthFor(Duration.ofMillis(100), 10, 16, strength -> TEN_MILLIS));
+        assertEquals(14, BCryptStrengthCalibrator.strengthFor(Duration.ofMillis(160), 10, 16, strength -> TEN_MILLIS));
+    }
+
+    @Test
+    void testStrengthFor_StaysWithinBounds() {
+        assertEquals(10, BCryptStrengthCalibrator.strengthFor(Duration.ofMillis(1), 10, 16, strength -> TEN_MILLIS));
+        assertEquals(12, BCryptStrengthCalibrator.strengthFor(Duration.ofSeconds(10), 10, 12, strength -> TEN_MILLIS));
+    }
+
+    @Test
+    void testStrengthFor_UsesFastestSample() {
+        long[] samples = {TEN_MILLIS * 8, TEN_MILLIS, TEN_MILLIS * 4};
+        int[] call = {0};
+
+        int strength = BCryptStrengthCalibrator.strengthFor(Duration.ofMillis(40), 10, 16, s -> samples[call[0]++]);
+
+        assertEquals(12, strength);
+    }
+}
@@ -0,0 +1,25 @@
+package com.pulse.api.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalibratedBCryptPasswordEncoderTest {
+
+    private final CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(5);
+
+    @Test
+    void testUpgradeEncoding_OnlyForLowerCosts() {
+        assertFalse(encoder.upgradeEncoding(encoder.encode("password1")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password1")));
+        assertFalse(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("password1")));
+        assertFalse(encoder.upgradeEncoding(null));
+    }
+
+    @Test
+    void testMatches_AcceptsHashesOfOtherCosts() {
+        assertTrue(encoder.matches("password1", new BCryptPasswordEncoder(4).encode("password1")));
+        assertEquals(5, encoder.getStrength());
+    }
+}
@@ -0,0 +1,105 @@
+package com.pulse.api.security;
+
+import com.pulse.api.exceptions.LoginRateLimitedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginRateLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MutableClock clock;
+    private LoginRateLimiter loginRateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        loginRateLimiter = new LoginRateLimiter(meterRegistry, true, Duration.ofMinutes(1), 3, 5, 1024, 4, clock);
+    }
+
+    @Test
+    void testAcquire_ThrottlesIdentifierCaseInsensitively() {
+        loginRateLimiter.acquire("alice", "10.0.0.1");
+        loginRateLimiter.acquire("Alice", "10.0.0.2");
+        loginRateLimiter.acquire(" ALICE ", "10.0.0.3");
+
+        LoginRateLimitedException thrown = assertThrows(LoginRateLimitedException.class,
+                () -> loginRateLimiter.acquire("alice", "10.0.0.4"));
+
+        assertEquals(60, thrown.getRetryAfterSeconds());
+        assertEquals(3, meterRegistry.get("pulse.login.attempts").tag("outcome", "admitted").counter().count());
+        assertEquals(1, meterRegistry.get("pulse.login.attempts").tag("limit", "identifier").counter().count());
+    }
+
+    @Test
+    void testAcquire_ThrottlesAddressAcrossIdentifiers() {
+        for (int i = 0; i < 5; i++) {
+            loginRateLimiter.acquire("user" + i, "10.0.0.1");
+        }
+
+        assertThrows(LoginRateLimitedException.class, () -> loginRateLimiter.acquire("user9", "10.0.0.1"));
+        loginRateLimiter.acquire("user9", "10.0.0.2");
+        assertEquals(1, meterRegistry.get("pulse.login.attempts").tag("limit", "address").counter().count());
+    }
+
+    @Test
+    void testAcquire_AdmitsAgainOnceTheWindowSlides() {
+        for (int i = 0; i < 3; i++) {
+            loginRateLimiter.acquire("alice", "10.0.0.1");
+        }
+        clock.advance(Duration.ofSeconds(90));
+
+        // Half of the previous window still overlaps: 1.5 estimated attempts, below the limit of 3
+        loginRateLimiter.acquire("alice", "10.0.0.1");
+        assertThrows(LoginRateLimitedException.class, () -> {
+            loginRateLimiter.acquire("alice", "10.0.0.1");
+            loginRateLimiter.acquire("alice", "10.0.0.1");
+        });
+    }
+
+    @Test
+    void testAcquire_DisabledAdmitsEverything() {
+        LoginRateLimiter disabled = new LoginRateLimiter(meterRegistry, false, Duration.ofMinutes(1), 1, 1, 1024, 4, clock);
+
+        for (int i = 0; i < 10; i++) {
+            disabled.acquire("alice", "10.0.0.1");
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
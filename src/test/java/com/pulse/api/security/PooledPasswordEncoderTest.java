@@ -0,0 +1,59 @@
+package com.pulse.api.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PooledPasswordEncoderTest {
+
+    private final PasswordEncoder bcrypt = mock(PasswordEncoder.class);
+    private final PasswordHasher passwordHasher = new PasswordHasher(bcrypt, 1, 1);
+    private final PooledPasswordEncoder encoder = new PooledPasswordEncoder(passwordHasher);
+
+    @AfterEach
+    void tearDown() {
+        passwordHasher.shutdown();
+    }
+
+    @Test
+    void testMatches_RunsOnThePoolAndRethrowsEncoderErrors() {
+        when(bcrypt.matches(any(), anyString())).thenAnswer(invocation ->
+                Thread.currentThread().getName().startsWith("password-hashing-"));
+        when(bcrypt.matches(any(), eq("malformed")))
+                .thenThrow(new IllegalArgumentException("Invalid salt"));
+
+        assertTrue(encoder.matches("password1", "hash"));
+        assertThrows(IllegalArgumentException.class, () -> encoder.matches("password1", "malformed"));
+    }
+
+    @Test
+    void testMatches_RejectedWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bcrypt.encode(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return "hash";
+        });
+
+        CompletableFuture<String> running = passwordHasher.encode("password1");
+        started.await();
+        CompletableFuture<String> queued = passwordHasher.encode("password2");
+
+        assertThrows(RejectedExecutionException.class, () -> encoder.matches("password1", "hash"));
+        release.countDown();
+        assertEquals("hash", running.join());
+        assertEquals("hash", queued.join());
+    }
+}
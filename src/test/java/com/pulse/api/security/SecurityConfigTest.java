@@ -0,0 +1,55 @@
+package com.pulse.api.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecurityConfigTest {
+
+    // The seeded admin's password hash (DatabaseInitializer): BCrypt at cost 12, without an id prefix
+    private static final String SEEDED_ADMIN_HASH = "$2a$12$CgeWqCls7y1lOl4U7umNEeBNoSUExhG2dgfJseWY27O.jlHnCKt8e";
+
+    private final SecurityConfig securityConfig = new SecurityConfig();
+    private PasswordHasher passwordHasher;
+    private PasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void setUp() {
+        passwordHasher = securityConfig.passwordHasher(10, Duration.ofMillis(1), 4, 4, 1, 10);
+        passwordEncoder = securityConfig.passwordEncoder(passwordHasher);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHasher.shutdown();
+    }
+
+    @Test
+    void testUpgradeEncoding_KeepsStrongerUnprefixedHash() {
+        assertFalse(passwordEncoder.upgradeEncoding(SEEDED_ADMIN_HASH));
+    }
+
+    @Test
+    void testUpgradeEncoding_UpgradesWeakerHashWithOrWithoutPrefix() {
+        String weak = new BCryptPasswordEncoder(4).encode("password1");
+
+        assertTrue(passwordEncoder.upgradeEncoding(weak));
+        assertTrue(passwordEncoder.upgradeEncoding("{bcrypt}" + weak));
+        assertTrue(passwordEncoder.matches("password1", weak));
+    }
+
+    @Test
+    void testUpgradeEncoding_KeepsOwnHashes() {
+        String encoded = passwordEncoder.encode("password1");
+
+        assertTrue(encoded.startsWith("{bcrypt}$2a$10$"));
+        assertFalse(passwordEncoder.upgradeEncoding(encoded));
+        assertTrue(passwordEncoder.matches("password1", encoded));
+    }
+}
@@ -0,0 +1,50 @@
+package com.pulse.api.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowCounterTest {
+
+    private static final long MINUTE = 60_000;
+
+    private final SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofMinutes(1), 1024, 4, 42L);
+
+    @Test
+    void testEstimate_CountsPerKey() {
+        for (int i = 0; i < 3; i++) {
+            counter.increment("alice", 1_000);
+        }
+        counter.increment("bob", 1_000);
+
+        assertEquals(3, counter.estimate("alice", 2_000));
+        assertEquals(1, counter.estimate("bob", 2_000));
+        assertEquals(0, counter.estimate("carol", 2_000));
+    }
+
+    @Test
+    void testEstimate_WeighsPreviousWindowByOverlap() {
+        for (int i = 0; i < 10; i++) {
+            counter.increment("alice", 10 * MINUTE + 59_000);
+        }
+        counter.increment("alice", 11 * MINUTE + 15_000);
+
+        // A quarter into the next window, three quarters of the previous one still overlap
+        assertEquals(1 + 7.5, counter.estimate("alice", 11 * MINUTE + 15_000), 0.001);
+        // Once a whole window has passed, old attempts no longer count
+        assertEquals(0, counter.estimate("alice", 13 * MINUTE));
+    }
+
+    @Test
+    void testEstimate_NeverUnderestimatesInACrowdedSketch() {
+        SlidingWindowCounter small = new SlidingWindowCounter(Duration.ofMinutes(1), 16, 2, 7L);
+        for (int i = 0; i < 1000; i++) {
+            small.increment("user" + i, 1_000);
+        }
+        small.increment("alice", 1_000);
+
+        assertTrue(small.estimate("alice", 1_000) >= 1);
+    }
+}
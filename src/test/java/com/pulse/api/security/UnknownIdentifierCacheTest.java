@@ -0,0 +1,46 @@
+package com.pulse.api.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnknownIdentifierCacheTest {
+
+    private final UnknownIdentifierCache cache =
+            new UnknownIdentifierCache(new SimpleMeterRegistry(), true, 100, Duration.ofSeconds(30));
+
+    @Test
+    void testMarkAndForget() {
+        cache.markUnknown("nobody");
+        assertTrue(cache.isUnknown("nobody"));
+        assertFalse(cache.isUnknown("Nobody"));
+
+        cache.forget("nobody", null);
+        assertFalse(cache.isUnknown("nobody"));
+    }
+
+    @Test
+    void testDisabledCacheKnowsNothing() {
+        UnknownIdentifierCache disabled = new UnknownIdentifierCache(new SimpleMeterRegistry(), false, 100, Duration.ofSeconds(30));
+
+        disabled.markUnknown("nobody");
+
+        assertFalse(disabled.isUnknown("nobody"));
+    }
+
+    @Test
+    void testAwaitLookupTime_PadsToMovingAverage() {
+        cache.recordLookupTime(TimeUnit.MILLISECONDS.toNanos(20));
+        cache.recordLookupTime(TimeUnit.MILLISECONDS.toNanos(30));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(21), cache.averageLookupNanos());
+
+        long start = System.nanoTime();
+        cache.awaitLookupTime(start);
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(21));
+    }
+}
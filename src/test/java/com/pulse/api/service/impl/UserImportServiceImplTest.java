@@ -0,0 +1,152 @@
+package com.pulse.api.service.impl;
+
+import com.pulse.api.cache.UserCacheInvalidator;
+import com.pulse.api.dto.UserConflicts;
+import com.pulse.api.dto.UserImportResult;
+import com.pulse.api.dto.UserImportRow;
+import com.pulse.api.enums.RoleName;
+import com.pulse.api.exceptions.InvalidImportException;
+import com.pulse.api.model.User;
+import com.pulse.api.repo.UserRepo;
+import com.pulse.api.security.UnknownIdentifierCache;
+import com.pulse.api.security.PasswordHasher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class UserImportServiceImplTest {
+
+    @Mock
+    private UserRepo userRepo;
+
+    @Mock
+    private UnknownIdentifierCache unknownIdentifiers;
+
+    @Mock
+    private PasswordHasher passwordHasher;
+
+    @Mock
+    private UserCacheInvalidator userCacheInvalidator;
+
+    @InjectMocks
+    private UserImportServiceImpl userImportService;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(passwordHasher.encode(any())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture("hashed-" + invocation.getArgument(0)));
+        when(userRepo.findExistingUsernames(any())).thenReturn(Set.of());
+        when(userRepo.findExistingEmails(any())).thenReturn(Set.of());
+        when(userRepo.findExistingPhones(any())).thenReturn(Set.of());
+        when(userRepo.saveAll(anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.forEach(user -> user.setId(ids.incrementAndGet()));
+            return users;
+        });
+    }
+
+    @Test
+    void testImportUsers_CreatesValidRowsWithHashedPasswords() {
+        List<UserImportResult> results = userImportService.importUsers(List.of(row("alice"), row("bob")));
+
+        assertEquals(List.of(UserImportResult.created(1, "alice", 1L), UserImportResult.created(2, "bob", 2L)), results);
+        ArgumentCaptor<List<User>> saved = ArgumentCaptor.forClass(List.class);
+        verify(userRepo).saveAll(saved.capture());
+        User alice = saved.getValue().get(0);
+        assertEquals("hashed-password1", alice.getPassword());
+        assertEquals(Set.of(RoleName.NORMAL), alice.getRoles());
+    }
+
+    @Test
+    void testImportUsers_RejectsInvalidAndDuplicateRows() {
+        UserImportRow shortPassword = new UserImportRow("A", null, "B", "carol", "carol@x.com", "short",
+                null, null, null, null, null, null);
+
+        List<UserImportResult> results = userImportService.importUsers(List.of(row("alice"), shortPassword, row("alice")));
+
+        assertEquals(UserImportResult.Status.CREATED, results.get(0).status());
+        assertEquals("Password should be at least 8 characters long", results.get(1).error());
+        assertEquals("Username 'alice' appears more than once in the import", results.get(2).error());
+        verify(passwordHasher, times(1)).encode(any());
+    }
+
+    @Test
+    void testImportUsers_RejectsExistingUsersWithOneQueryPerColumn() {
+        when(userRepo.findExistingEmails(any())).thenReturn(Set.of("bob@x.com"));
+
+        List<UserImportResult> results = userImportService.importUsers(List.of(row("alice"), row("bob")));
+
+        assertEquals(UserImportResult.Status.CREATED, results.get(0).status());
+        assertEquals(UserImportResult.rejected(2, "bob", "Email 'bob@x.com' already exists"), results.get(1));
+        verify(userRepo, times(1)).findExistingEmails(any());
+    }
+
+    @Test
+    void testImportUsers_SplitsLargeImportsIntoChunks() {
+        List<UserImportRow> rows = new ArrayList<>();
+        for (int i = 0; i < UserImportServiceImpl.LOOKUP_CHUNK_SIZE + 1; i++) {
+            rows.add(row("user" + i));
+        }
+
+        List<UserImportResult> results = userImportService.importUsers(rows);
+
+        assertTrue(results.stream().allMatch(result -> result.status() == UserImportResult.Status.CREATED));
+        verify(userRepo, times(2)).findExistingUsernames(any());
+        verify(userRepo, times(3)).saveAll(anyList());
+        verify(userCacheInvalidator, times(1)).invalidateAll();
+    }
+
+    @Test
+    void testImportUsers_FallsBackToSingleInsertsOnConflict() {
+        when(userRepo.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(userRepo.save(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            if (user.getUsername().equals("bob")) {
+                throw new DataIntegrityViolationException("duplicate key");
+            }
+            user.setId(ids.incrementAndGet());
+            return user;
+        });
+        when(userRepo.findConflicts("bob", "bob@x.com", null)).thenReturn(new UserConflicts(1, 0, 0));
+
+        List<UserImportResult> results = userImportService.importUsers(List.of(row("alice"), row("bob")));
+
+        assertEquals(UserImportResult.created(1, "alice", 1L), results.get(0));
+        assertEquals(UserImportResult.rejected(2, "bob", "Username 'bob' already exists"), results.get(1));
+    }
+
+    @Test
+    void testImportUsers_RejectsOversizedImport() {
+        assertThrows(InvalidImportException.class, () -> userImportService.importUsers(List.of()));
+        List<UserImportRow> rows = new ArrayList<>();
+        for (int i = 0; i <= userImportService.getMaxRows(); i++) {
+            rows.add(row("user" + i));
+        }
+        assertThrows(InvalidImportException.class, () -> userImportService.importUsers(rows));
+        verify(userRepo, never()).findExistingUsernames(any(Collection.class));
+    }
+
+    private static UserImportRow row(String username) {
+        return new UserImportRow("First", null, "Last", username, username + "@x.com", "password1",
+                null, null, null, null, null, null);
+    }
+}
@@ -1,23 +1,43 @@
 package com.pulse.api.service.impl;
 
+import com.pulse.api.cache.CoalescingUserLookups;
+import com.pulse.api.cache.UserCacheInvalidator;
+import com.pulse.api.dto.UserConflicts;
 import com.pulse.api.dto.UserDto;
+import com.pulse.api.dto.UserPage;
+import com.pulse.api.dto.UserPatch;
+import com.pulse.api.dto.UserResponse;
+import com.pulse.api.dto.UserView;
 import com.pulse.api.enums.RoleName;
 import com.pulse.api.exceptions.EmailAlreadyExistsException;
+import com.pulse.api.exceptions.InvalidCursorException;
+import com.pulse.api.exceptions.InvalidUserUpdateException;
 import com.pulse.api.exceptions.PhoneAlreadyExistsException;
 import com.pulse.api.exceptions.ResourceNotFoundException;
+import com.pulse.api.exceptions.UserVersionMismatchException;
 import com.pulse.api.exceptions.UsernameAlreadyExistsException;
 import com.pulse.api.model.User;
 import com.pulse.api.repo.UserRepo;
+import com.pulse.api.security.PasswordHasher;
+import com.pulse.api.security.UnknownIdentifierCache;
+import com.pulse.api.storage.ProfilePictureStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.mock.web.MockMultipartFile;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -29,17 +49,29 @@ class UserServiceImplTest {
     private UserRepo userRepo;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private UnknownIdentifierCache unknownIdentifiers;
+
+    @Mock
+    private PasswordHasher passwordHasher;
+
+    @Mock
+    private ProfilePictureStore profilePictureStore;
+
+    @Mock
+    private UserCacheInvalidator userCacheInvalidator;
 
-    @InjectMocks
     private UserServiceImpl userServiceImpl;
 
     private UserDto mockUserDto;
     private User mockUser;
+    private UserView mockUserView;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        userServiceImpl = new UserServiceImpl(passwordHasher, userRepo, profilePictureStore, unknownIdentifiers,
+                userCacheInvalidator, new CoalescingUserLookups(userRepo, new SimpleMeterRegistry(), true));
+        when(passwordHasher.encode(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
         mockUserDto = new UserDto();
         mockUserDto.setUsername("johndoe");
         mockUserDto.setPassword("password");
@@ -52,6 +84,9 @@ class UserServiceImplTest {
         mockUser.setUsername("johndoe");
         mockUser.setEmail("johndoe@example.com");
         mockUser.setPhone("1234567890");
+        mockUser.setRoles(EnumSet.of(RoleName.ADMIN));
+        mockUser.setVersion(3L);
+        mockUserView = view(mockUser);
     }
 
     @Test
@@ -68,24 +103,25 @@ class UserServiceImplTest {
         mockUserDto.setProfilePicture(mockProfilePicture);
 
         // Mocking repository and encoder responses
-        when(userRepo.existsByUsername(anyString())).thenReturn(false);
-        when(userRepo.existsByEmail(anyString())).thenReturn(false);
-        when(userRepo.existsByPhone(anyString())).thenReturn(false);
-        when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+        when(userRepo.findConflicts(anyString(), anyString(), anyString())).thenReturn(UserConflicts.NONE);
+        when(passwordHasher.encode(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
         when(userRepo.save(any(User.class))).thenReturn(mockUser);
+        when(profilePictureStore.store(mockProfilePicture)).thenReturn(CompletableFuture.completedFuture("stored.jpg"));
 
         // Run the createUser method
-        UserDto result = userServiceImpl.createUser(mockUserDto);
+        UserDto result = userServiceImpl.createUser(mockUserDto).join();
 
         // Assertions to check the outcome
         assertEquals(mockUserDto.getUsername(), result.getUsername());
         assertEquals(mockUserDto.getEmail(), result.getEmail());
-        verify(userRepo, times(1)).save(any(User.class));
+        verify(userRepo, times(1)).save(argThat(user -> "stored.jpg".equals(user.getProfilePicture())));
+        verify(unknownIdentifiers).forget(mockUser.getUsername(), mockUser.getEmail(), mockUser.getPhone());
+        verify(userCacheInvalidator).invalidate(1L);
     }
 
     @Test
     void testCreateUser_UsernameAlreadyExists() {
-        when(userRepo.existsByUsername(anyString())).thenReturn(true);
+        when(userRepo.findConflicts(anyString(), anyString(), anyString())).thenReturn(new UserConflicts(1, 1, 0));
 
         assertThrows(UsernameAlreadyExistsException.class, () -> {
             userServiceImpl.createUser(mockUserDto);
@@ -94,8 +130,7 @@ class UserServiceImplTest {
 
     @Test
     void testCreateUser_EmailAlreadyExists() {
-        when(userRepo.existsByUsername(anyString())).thenReturn(false);
-        when(userRepo.existsByEmail(anyString())).thenReturn(true);
+        when(userRepo.findConflicts(anyString(), anyString(), anyString())).thenReturn(new UserConflicts(0, 1, 0));
 
         assertThrows(EmailAlreadyExistsException.class, () -> {
             userServiceImpl.createUser(mockUserDto);
@@ -104,29 +139,59 @@ class UserServiceImplTest {
 
     @Test
     void testCreateUser_PhoneAlreadyExists() {
-        when(userRepo.existsByUsername(anyString())).thenReturn(false);
-        when(userRepo.existsByEmail(anyString())).thenReturn(false);
-        when(userRepo.existsByPhone(anyString())).thenReturn(true);
+        when(userRepo.findConflicts(anyString(), anyString(), anyString())).thenReturn(new UserConflicts(0, 0, 1));
 
         assertThrows(PhoneAlreadyExistsException.class, () -> {
             userServiceImpl.createUser(mockUserDto);
         });
+        verify(userRepo, times(1)).findConflicts(anyString(), anyString(), anyString());
+        verify(userRepo, never()).save(any(User.class));
+    }
+
+    @Test
+    void testCreateUser_Optimistic_TranslatesNamedConstraintViolation() {
+        ReflectionTestUtils.setField(userServiceImpl, "optimisticCreate", true);
+        mockUserDto.setProfilePicture(new MockMultipartFile("profilePicture", "profile.jpg", "image/jpeg", new byte[]{1}));
+        when(profilePictureStore.store(any())).thenReturn(CompletableFuture.completedFuture("stored.jpg"));
+        when(userRepo.save(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate key",
+                new ConstraintViolationException("duplicate key", new SQLException(), User.EMAIL_CONSTRAINT)));
+
+        CompletionException thrown = assertThrows(CompletionException.class,
+                () -> userServiceImpl.createUser(mockUserDto).join());
+
+        assertInstanceOf(EmailAlreadyExistsException.class, thrown.getCause());
+        verify(userRepo, never()).findConflicts(any(), any(), any());
+    }
+
+    @Test
+    void testCreateUser_Optimistic_QueriesConflictsForUnnamedConstraint() {
+        ReflectionTestUtils.setField(userServiceImpl, "optimisticCreate", true);
+        mockUserDto.setProfilePicture(new MockMultipartFile("profilePicture", "profile.jpg", "image/jpeg", new byte[]{1}));
+        when(profilePictureStore.store(any())).thenReturn(CompletableFuture.completedFuture("stored.jpg"));
+        when(userRepo.save(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(userRepo.findConflicts(anyString(), anyString(), anyString())).thenReturn(new UserConflicts(1, 0, 0));
+
+        CompletionException thrown = assertThrows(CompletionException.class,
+                () -> userServiceImpl.createUser(mockUserDto).join());
+
+        assertInstanceOf(UsernameAlreadyExistsException.class, thrown.getCause());
     }
 
     @Test
     void testFindUserById_Success() {
-        when(userRepo.findById(anyLong())).thenReturn(Optional.of(mockUser));
+        when(userRepo.findCachedById(anyLong())).thenReturn(Optional.of(mockUser));
 
-        UserDto result = userServiceImpl.findUserById(1L);
+        UserResponse result = userServiceImpl.findUserById(1L);
 
         assertNotNull(result);
-        assertEquals("johndoe", result.getUsername());
-        verify(userRepo, times(1)).findById(1L);
+        assertEquals("johndoe", result.username());
+        assertEquals(Set.of(RoleName.ADMIN), result.roles());
+        verify(userRepo, times(1)).findCachedById(1L);
     }
 
     @Test
     void testFindUserById_NotFound() {
-        when(userRepo.findById(anyLong())).thenReturn(Optional.empty());
+        when(userRepo.findCachedById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class, () -> {
             userServiceImpl.findUserById(1L);
@@ -135,18 +200,19 @@ class UserServiceImplTest {
 
     @Test
     void testFindUserByEmail_Success() {
-        when(userRepo.findByEmail(anyString())).thenReturn(Optional.of(mockUser));
+        when(userRepo.findCachedByEmail(anyString())).thenReturn(Optional.of(mockUser));
 
-        UserDto result = userServiceImpl.findUserByEmail("johndoe@example.com");
+        UserResponse result = userServiceImpl.findUserByEmail("johndoe@example.com");
 
         assertNotNull(result);
-        assertEquals("johndoe", result.getUsername());
-        verify(userRepo, times(1)).findByEmail("johndoe@example.com");
+        assertEquals("johndoe", result.username());
+        assertEquals(Set.of(RoleName.ADMIN), result.roles());
+        verify(userRepo, times(1)).findCachedByEmail("johndoe@example.com");
     }
 
     @Test
     void testFindUserByEmail_NotFound() {
-        when(userRepo.findByEmail(anyString())).thenReturn(Optional.empty());
+        when(userRepo.findCachedByEmail(anyString())).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class, () -> {
             userServiceImpl.findUserByEmail("johndoe@example.com");
@@ -155,18 +221,19 @@ class UserServiceImplTest {
 
     @Test
     void testFindUserByUsername_Success() {
-        when(userRepo.findByUsername(anyString())).thenReturn(Optional.of(mockUser));
+        when(userRepo.findCachedByUsername(anyString())).thenReturn(Optional.of(mockUser));
 
-        UserDto result = userServiceImpl.findUserByUsername("johndoe");
+        UserResponse result = userServiceImpl.findUserByUsername("johndoe");
 
         assertNotNull(result);
-        assertEquals("johndoe", result.getUsername());
-        verify(userRepo, times(1)).findByUsername("johndoe");
+        assertEquals("johndoe", result.username());
+        assertEquals(Set.of(RoleName.ADMIN), result.roles());
+        verify(userRepo, times(1)).findCachedByUsername("johndoe");
     }
 
     @Test
     void testFindUserByUsername_NotFound() {
-        when(userRepo.findByUsername(anyString())).thenReturn(Optional.empty());
+        when(userRepo.findCachedByUsername(anyString())).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class, () -> {
             userServiceImpl.findUserByUsername("johndoe");
@@ -180,6 +247,7 @@ class UserServiceImplTest {
         userServiceImpl.deleteUser(1L);
 
         verify(userRepo, times(1)).delete(mockUser);
+        verify(userCacheInvalidator).invalidate(1L);
     }
 
     @Test
@@ -191,6 +259,25 @@ class UserServiceImplTest {
         });
     }
 
+    @Test
+    void testRevokeTokens_Success() {
+        when(userRepo.incrementTokenVersion(1L)).thenReturn(1);
+
+        userServiceImpl.revokeTokens(1L);
+
+        verify(userRepo, times(1)).incrementTokenVersion(1L);
+        verify(userCacheInvalidator).invalidateAfterBulkUpdate(1L);
+    }
+
+    @Test
+    void testRevokeTokens_NotFound() {
+        when(userRepo.incrementTokenVersion(anyLong())).thenReturn(0);
+
+        assertThrows(ResourceNotFoundException.class, () -> {
+            userServiceImpl.revokeTokens(1L);
+        });
+    }
+
     @Test
     void testAuthenticateUser_Success() {
         // Set the encoded password in mockUser
@@ -200,8 +287,8 @@ class UserServiceImplTest {
         // Mock userRepo to return the mockUser
         when(userRepo.findByUsernameOrEmail(anyString(), anyString())).thenReturn(Optional.of(mockUser));
 
-        // Mock the passwordEncoder to return true when comparing the raw and encoded passwords
-        when(passwordEncoder.matches("password", encodedPassword)).thenReturn(true);
+        // Mock the passwordHasher to return true when comparing the raw and encoded passwords
+        when(passwordHasher.matches("password", encodedPassword)).thenReturn(CompletableFuture.completedFuture(true));
 
         // Run the authenticateUser method
         UserDto result = userServiceImpl.authenticateUser("johndoe", "password");
@@ -210,14 +297,14 @@ class UserServiceImplTest {
         assertNotNull(result);
         assertEquals(mockUserDto.getUsername(), result.getUsername());
         verify(userRepo, times(1)).findByUsernameOrEmail(anyString(), anyString());
-        verify(passwordEncoder, times(1)).matches(anyString(), anyString());
+        verify(passwordHasher, times(1)).matches(anyString(), anyString());
     }
 
 
     @Test
     void testAuthenticateUser_InvalidPassword() {
         when(userRepo.findByUsernameOrEmail(anyString(), anyString())).thenReturn(Optional.of(mockUser));
-        when(passwordEncoder.matches(anyString(), anyString())).thenReturn(false);
+        when(passwordHasher.matches(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(false));
 
         assertThrows(RuntimeException.class, () -> {
             userServiceImpl.authenticateUser("johndoe", "wrongPassword");
@@ -243,6 +330,33 @@ class UserServiceImplTest {
         verify(userRepo, times(1)).findAll();
     }
 
+    @Test
+    void testGetUsersPage_ReturnsCursorWhenMoreRowsExist() {
+        User second = new User();
+        second.setId(2L);
+        UserView secondView = view(second);
+        when(userRepo.findViewsByIdGreaterThanOrderByIdAsc(0L, Limit.of(2))).thenReturn(List.of(mockUserView, secondView));
+
+        UserPage page = userServiceImpl.getUsersPage(null, 1);
+
+        assertEquals(1, page.users().size());
+        assertNotNull(page.nextCursor());
+
+        when(userRepo.findViewsByIdGreaterThanOrderByIdAsc(1L, Limit.of(2))).thenReturn(List.of(secondView));
+
+        UserPage next = userServiceImpl.getUsersPage(page.nextCursor(), 1);
+
+        assertEquals(1, next.users().size());
+        assertNull(next.nextCursor());
+    }
+
+    @Test
+    void testGetUsersPage_InvalidCursor() {
+        assertThrows(InvalidCursorException.class, () -> {
+            userServiceImpl.getUsersPage("not-a-cursor", 10);
+        });
+    }
+
     @Test
     void testUpdateUser_Success() {
         when(userRepo.findById(anyLong())).thenReturn(Optional.of(mockUser));
@@ -251,10 +365,13 @@ class UserServiceImplTest {
         updatedDto.setUsername("updatedUser");
         updatedDto.setEmail("updated@example.com");
         updatedDto.setPhone("9876543210");
+        when(userRepo.save(mockUser)).thenReturn(mockUser);
 
-        userServiceImpl.updateUser(1L, updatedDto);
+        UserResponse updated = userServiceImpl.updateUser(1L, updatedDto, null).join();
 
+        assertEquals("updatedUser", updated.username());
         verify(userRepo, times(1)).save(mockUser);
+        verify(userCacheInvalidator).invalidate(1L);
     }
 
     @Test
@@ -262,7 +379,126 @@ class UserServiceImplTest {
         when(userRepo.findById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class, () -> {
-            userServiceImpl.updateUser(1L, mockUserDto);
+            userServiceImpl.updateUser(1L, mockUserDto, null);
         });
     }
+
+    @Test
+    void testPatchUser_UnchangedIdentifiersSkipConflictQuery() {
+        when(userRepo.findCachedById(1L)).thenReturn(Optional.of(mockUser));
+
+        UserResponse patched = userServiceImpl.patchUser(1L, patch("johndoe", null, "Just a bio", null), null);
+
+        assertEquals("Just a bio", patched.bio());
+        assertEquals(Set.of(RoleName.ADMIN), patched.roles());
+        verify(userRepo, never()).findConflicts(any(), any(), any());
+        // The response comes from the managed entity: nothing is saved explicitly or read back
+        verify(userRepo, never()).save(any());
+        verify(userRepo, never()).findById(anyLong());
+        verify(userRepo).flush();
+        verify(userCacheInvalidator).invalidate(1L);
+    }
+
+    @Test
+    void testPatchUser_QueriesOnlyChangedIdentifier() {
+        when(userRepo.findCachedById(1L)).thenReturn(Optional.of(mockUser));
+        when(userRepo.findConflicts("janedoe", null, null)).thenReturn(UserConflicts.NONE);
+
+        UserResponse patched = userServiceImpl.patchUser(1L, patch("janedoe", "johndoe@example.com", null, null), null);
+
+        assertEquals("janedoe", patched.username());
+        verify(userRepo).findConflicts("janedoe", null, null);
+    }
+
+    @Test
+    void testPatchUser_UsernameTaken() {
+        when(userRepo.findCachedById(1L)).thenReturn(Optional.of(mockUser));
+        when(userRepo.findConflicts("janedoe", null, null)).thenReturn(new UserConflicts(1, 0, 0));
+
+        assertThrows(UsernameAlreadyExistsException.class,
+                () -> userServiceImpl.patchUser(1L, patch("janedoe", null, null, null), null));
+        assertEquals("johndoe", mockUser.getUsername());
+        verify(userRepo, never()).flush();
+    }
+
+    @Test
+    void testPatchUser_RolesLeftAloneWhenUnchanged() {
+        Set<RoleName> roles = mockUser.getRoles();
+        when(userRepo.findCachedById(1L)).thenReturn(Optional.of(mockUser));
+
+        userServiceImpl.patchUser(1L, patch(null, null, null, Set.of(RoleName.ADMIN)), null);
+        assertSame(roles, mockUser.getRoles());
+
+        userServiceImpl.patchUser(1L, patch(null, null, null, Set.of(RoleName.NORMAL)), null);
+        assertEquals(EnumSet.of(RoleName.NORMAL), mockUser.getRoles());
+    }
+
+    @Test
+    void testPatchUser_InvalidEmail() {
+        when(userRepo.findCachedById(1L)).thenReturn(Optional.of(mockUser));
+
+        // Held to the same rule as imported rows, which want a dotted domain
+        for (String email : List.of("not-an-email", "johndoe@localhost")) {
+            assertThrows(InvalidUserUpdateException.class,
+                    () -> userServiceImpl.patchUser(1L, patch(null, email, null, null), null));
+        }
+        verify(userRepo, never()).flush();
+    }
+
+    @Test
+    void testPatchUser_UserNotFound() {
+        when(userRepo.findCachedById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> userServiceImpl.patchUser(1L, patch(null, null, "bio", null), null));
+    }
+
+    @Test
+    void testUpdateUser_StaleIfMatchVersion() {
+        when(userRepo.findById(anyLong())).thenReturn(Optional.of(mockUser));
+
+        assertThrows(UserVersionMismatchException.class, () -> userServiceImpl.updateUser(1L, mockUserDto, 2L));
+        verify(userRepo, never()).save(any());
+    }
+
+    @Test
+    void testPatchUser_StaleIfMatchVersion() {
+        when(userRepo.findCachedById(1L)).thenReturn(Optional.of(mockUser));
+
+        assertThrows(UserVersionMismatchException.class,
+                () -> userServiceImpl.patchUser(1L, patch(null, null, "bio", null), 2L));
+        assertNull(mockUser.getBio());
+        verify(userRepo, never()).flush();
+    }
+
+    @Test
+    void testPatchUser_MatchingIfMatchVersion() {
+        when(userRepo.findCachedById(1L)).thenReturn(Optional.of(mockUser));
+
+        UserResponse patched = userServiceImpl.patchUser(1L, patch(null, null, "bio", null), 3L);
+
+        assertEquals("bio", patched.bio());
+        verify(userRepo).flush();
+    }
+
+    @Test
+    void testUpdateUserProfilePicture_InvalidatesCachedUser() {
+        MockMultipartFile file = new MockMultipartFile("file", "profile.jpg", "image/jpeg", new byte[]{1});
+        when(userRepo.findById(anyLong())).thenReturn(Optional.of(mockUser));
+        when(profilePictureStore.store(file)).thenReturn(CompletableFuture.completedFuture("stored.jpg"));
+
+        userServiceImpl.updateUserProfilePicture(1L, file).join();
+
+        verify(userRepo).save(argThat(user -> "stored.jpg".equals(user.getProfilePicture())));
+        verify(userCacheInvalidator).invalidate(1L);
+    }
+
+    private static UserPatch patch(String username, String email, String bio, Set<RoleName> roles) {
+        return new UserPatch(null, null, null, username, email, null, null, null, null, bio, roles);
+    }
+
+    // Projects the entity the same way Spring Data backs a UserView
+    private static UserView view(User user) {
+        return new SpelAwareProxyProjectionFactory().createProjection(UserView.class, user);
+    }
 }
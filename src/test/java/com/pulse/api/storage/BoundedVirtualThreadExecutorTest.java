@@ -0,0 +1,43 @@
+package com.pulse.api.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledForJreRange(min = JRE.JAVA_21)
+class BoundedVirtualThreadExecutorTest {
+
+    @Test
+    void testExecute_RejectsBeyondMaxTasksAndRunsOnVirtualThreads() throws Exception {
+        BoundedVirtualThreadExecutor executor = new BoundedVirtualThreadExecutor("test-", 2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean virtual = new AtomicBoolean();
+        Runnable blocked = () -> {
+            // Thread.isVirtual() is not in the Java 17 API the tests compile against
+            virtual.set(Thread.currentThread().getClass().getName().equals("java.lang.VirtualThread"));
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        executor.execute(blocked);
+        executor.execute(blocked);
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(blocked));
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(executor.isTerminated());
+        assertTrue(virtual.get());
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+    }
+}
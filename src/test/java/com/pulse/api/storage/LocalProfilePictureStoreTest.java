@@ -0,0 +1,258 @@
+package com.pulse.api.storage;
+
+import com.pulse.api.exceptions.InvalidProfilePictureException;
+import com.pulse.api.exceptions.StorageException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LocalProfilePictureStoreTest {
+
+    @TempDir
+    Path root;
+
+    private LocalProfilePictureStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalProfilePictureStore(root, 2, 10);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        store.shutdown();
+    }
+
+    @Test
+    void testStore_NamesFileByContentDigest() throws IOException, NoSuchAlgorithmException {
+        // A JPEG with trailing bytes, so the copy takes several transfer chunks
+        byte[] jpeg = image("jpg", 16, 16);
+        byte[] content = Arrays.copyOf(jpeg, 3 * 1024 * 1024 + 17);
+        content[content.length - 1] = 42;
+        MockMultipartFile file = new MockMultipartFile("file", "photo.JPG", "image/jpeg", content);
+
+        String fileName = store.store(file).join();
+
+        String digest = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        assertEquals(digest + ".jpg", fileName);
+        assertArrayEquals(content, Files.readAllBytes(root.resolve(fileName)));
+    }
+
+    @Test
+    void testStore_DeduplicatesIdenticalContent() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "photo.png", "image/png", image("png", 2, 2));
+        MockMultipartFile copy = new MockMultipartFile("file", "copy.png", "image/png", image("png", 2, 2));
+        MockMultipartFile other = new MockMultipartFile("file", "other.png", "image/png", image("png", 3, 3));
+
+        String first = store.store(file).join();
+        String second = store.store(copy).join();
+        String third = store.store(other).join();
+
+        assertEquals(first, second);
+        assertNotEquals(first, third);
+        try (Stream<Path> files = Files.list(root)) {
+            assertEquals(2, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void testDeleteIfStoredBefore_SkipsFileRefreshedByDuplicateUpload() throws IOException {
+        MockMultipartFile file = png(2, 2);
+        String fileName = store.store(file).join();
+        Files.setLastModifiedTime(root.resolve(fileName), FileTime.from(Instant.now().minusSeconds(7200)));
+        Instant cutoff = Instant.now().minusSeconds(3600);
+        assertEquals(List.of(fileName), store.listStoredBefore(cutoff));
+
+        // Storing the same content again makes the file young enough to survive collection
+        store.store(file).join();
+
+        assertFalse(store.deleteIfStoredBefore(fileName, cutoff));
+        assertTrue(Files.exists(root.resolve(fileName)));
+    }
+
+    @Test
+    void testStore_RejectsNamesOtherThanPictures() throws IOException {
+        byte[] png = image("png", 2, 2);
+
+        for (String name : List.of("page.html", "drawing.svg", "photo.j/../pg", "photo")) {
+            MockMultipartFile file = new MockMultipartFile("file", name, "image/png", png);
+            assertThrows(InvalidProfilePictureException.class, () -> store.store(file), name);
+        }
+        try (Stream<Path> files = Files.list(root)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testStore_RejectsContentThatIsNotThePictureItsNameSays() throws IOException {
+        byte[] html = "<html><script>alert(1)</script></html>".getBytes(StandardCharsets.UTF_8);
+        // A PNG signature followed by anything else does not decode either
+        byte[] fakePng = Arrays.copyOf(image("png", 2, 2), 16);
+
+        for (MockMultipartFile file : List.of(
+                new MockMultipartFile("file", "photo.png", "image/png", html),
+                new MockMultipartFile("file", "photo.gif", "image/gif", image("png", 2, 2)),
+                new MockMultipartFile("file", "photo.png", "image/png", fakePng))) {
+            CompletionException ex = assertThrows(CompletionException.class, () -> store.store(file).join());
+            assertInstanceOf(InvalidProfilePictureException.class, ex.getCause());
+        }
+        try (Stream<Path> files = Files.list(root)) {
+            assertEquals(0, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void testStore_AcceptsWebPBySignature() {
+        byte[] webp = "RIFF\0\0\0\0WEBPVP8 ".getBytes(StandardCharsets.US_ASCII);
+
+        String fileName = store.store(new MockMultipartFile("file", "photo.WEBP", "image/webp", webp)).join();
+
+        assertTrue(fileName.endsWith(".webp"));
+    }
+
+    @Test
+    void testLoadVariant_ScalesDownKeepingAspectRatio() throws IOException {
+        String fileName = store.store(png(400, 200)).join();
+
+        Resource variant = store.loadVariant(fileName, 128).orElseThrow();
+
+        BufferedImage image = ImageIO.read(variant.getFile());
+        assertEquals(128, image.getWidth());
+        assertEquals(64, image.getHeight());
+        assertEquals(root.resolve("variants/128/" + fileName), variant.getFile().toPath());
+    }
+
+    @Test
+    void testLoadVariant_GeneratedLazilyOnceForConcurrentRequests() throws IOException {
+        String fileName = store.store(png(600, 600)).join();
+        // Simulate a picture stored before variants existed
+        Path variant = root.resolve("variants/48/" + fileName);
+        Files.deleteIfExists(variant);
+
+        List<CompletableFuture<Optional<Resource>>> requests = Stream.generate(
+                        () -> CompletableFuture.supplyAsync(() -> store.loadVariant(fileName, 48)))
+                .limit(8)
+                .toList();
+
+        for (CompletableFuture<Optional<Resource>> request : requests) {
+            assertEquals(variant, request.join().orElseThrow().getFile().toPath());
+        }
+        assertEquals(48, ImageIO.read(variant.toFile()).getWidth());
+        try (Stream<Path> files = Files.list(variant.getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testLoadVariant_SmallOrUndecodablePictureIsCopied() throws IOException {
+        String small = store.store(png(20, 10)).join();
+        // Stored before uploads were checked
+        String notAnImage = "0".repeat(64) + ".png";
+        Files.write(root.resolve(notAnImage), new byte[]{1, 2, 3});
+
+        assertArrayEquals(Files.readAllBytes(root.resolve(small)), store.loadVariant(small, 48).orElseThrow().getContentAsByteArray());
+        assertArrayEquals(new byte[]{1, 2, 3}, store.loadVariant(notAnImage, 48).orElseThrow().getContentAsByteArray());
+    }
+
+    @Test
+    void testLoadVariant_ExtremeAspectRatioFitsTheBox() throws IOException {
+        String fileName = store.store(png(20_000, 4)).join();
+
+        BufferedImage image = ImageIO.read(store.loadVariant(fileName, 48).orElseThrow().getFile());
+
+        assertEquals(48, image.getWidth());
+        assertEquals(1, image.getHeight());
+    }
+
+    @Test
+    void testLoadVariant_PictureAboveThePixelCapIsNotDecoded() throws IOException {
+        // A tiny file whose header claims 1,000,000 x 1,000 pixels
+        byte[] bomb = withPngDimensions(image("png", 1, 1), 1_000_000, 1_000);
+        String fileName = store.store(new MockMultipartFile("file", "photo.png", "image/png", bomb)).join();
+
+        assertArrayEquals(bomb, store.loadVariant(fileName, 48).orElseThrow().getContentAsByteArray());
+    }
+
+    @Test
+    void testLoadVariant_UnknownSizeOrPicture() throws IOException {
+        String fileName = store.store(png(1, 1)).join();
+
+        assertTrue(store.loadVariant(fileName, 100).isEmpty());
+        assertTrue(store.loadVariant("missing.png", 48).isEmpty());
+        assertTrue(store.load("../" + root.getFileName() + "/" + fileName).isPresent());
+        assertTrue(store.load("variants").isEmpty());
+    }
+
+    @Test
+    void testDeleteIfStoredBefore_RemovesVariants() throws IOException {
+        String fileName = store.store(png(300, 300)).join();
+        Path variant = store.loadVariant(fileName, 48).orElseThrow().getFile().toPath();
+
+        assertTrue(store.deleteIfStoredBefore(fileName, Instant.now().plusSeconds(60)));
+
+        assertFalse(Files.exists(variant));
+        assertEquals(List.of(), store.listStoredBefore(Instant.now().plusSeconds(60)));
+    }
+
+    @Test
+    void testStore_FailureLeavesNoTemporaryFile() throws IOException {
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getOriginalFilename()).thenReturn("photo.jpg");
+        when(file.getInputStream()).thenThrow(new IOException("client went away"));
+
+        CompletionException ex = assertThrows(CompletionException.class, () -> store.store(file).join());
+
+        assertInstanceOf(StorageException.class, ex.getCause());
+        try (Stream<Path> files = Files.list(root)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static MockMultipartFile png(int width, int height) throws IOException {
+        return new MockMultipartFile("file", "photo.png", "image/png", image("png", width, height));
+    }
+
+    // Rewrites the width and height in a PNG's IHDR chunk, which directly follows the 8-byte signature
+    private static byte[] withPngDimensions(byte[] png, int width, int height) {
+        ByteBuffer buffer = ByteBuffer.wrap(png.clone());
+        buffer.putInt(16, width).putInt(20, height);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 12, 17);
+        buffer.putInt(29, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    private static byte[] image(String format, int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,69 @@
+package com.pulse.api.storage;
+
+import com.pulse.api.repo.UserRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ProfilePictureGarbageCollectorTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T12:00:00Z");
+    private static final Instant CUTOFF = NOW.minus(Duration.ofHours(1));
+
+    @Mock
+    private ProfilePictureStore profilePictureStore;
+
+    @Mock
+    private UserRepo userRepo;
+
+    private ProfilePictureGarbageCollector collector;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        collector = new ProfilePictureGarbageCollector(profilePictureStore, userRepo,
+                Clock.fixed(NOW, ZoneOffset.UTC), true, Duration.ofHours(1));
+    }
+
+    @Test
+    void testCollect_DeletesOnlyUnreferencedFiles() {
+        when(profilePictureStore.listStoredBefore(CUTOFF)).thenReturn(List.of("kept.jpg", "orphan.jpg"));
+        when(userRepo.findReferencedProfilePictures(List.of("kept.jpg", "orphan.jpg"))).thenReturn(Set.of("kept.jpg"));
+        when(profilePictureStore.deleteIfStoredBefore("orphan.jpg", CUTOFF)).thenReturn(true);
+
+        assertEquals(1, collector.collect());
+        verify(profilePictureStore, never()).deleteIfStoredBefore(eq("kept.jpg"), any());
+    }
+
+    @Test
+    void testCollect_NothingOldEnough() {
+        when(profilePictureStore.listStoredBefore(CUTOFF)).thenReturn(List.of());
+
+        assertEquals(0, collector.collect());
+        verify(userRepo, never()).findReferencedProfilePictures(any());
+        verify(profilePictureStore, never()).deleteIfStoredBefore(anyString(), any());
+    }
+
+    @Test
+    void testScheduledCollect_Disabled() {
+        ProfilePictureGarbageCollector disabled = new ProfilePictureGarbageCollector(profilePictureStore, userRepo,
+                Clock.fixed(NOW, ZoneOffset.UTC), false, Duration.ofHours(1));
+
+        disabled.scheduledCollect();
+
+        verifyNoInteractions(profilePictureStore, userRepo);
+    }
+}
@@ -0,0 +1,158 @@
+package com.pulse.api.utils;
+
+import com.pulse.api.cache.CoalescingUserLookups;
+import com.pulse.api.cache.UserCacheInvalidator;
+import com.pulse.api.enums.RoleName;
+import com.pulse.api.model.User;
+import com.pulse.api.repo.UserRepo;
+import com.pulse.api.security.CalibratedBCryptPasswordEncoder;
+import com.pulse.api.security.UnknownIdentifierCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CustomCustomerDetailsServiceTest {
+
+    @Mock
+    private UserRepo userRepo;
+
+    @Mock
+    private UserCacheInvalidator userCacheInvalidator;
+
+    @Spy
+    private UnknownIdentifierCache unknownIdentifiers =
+            new UnknownIdentifierCache(new SimpleMeterRegistry(), true, 100, Duration.ofSeconds(30));
+
+    private CustomCustomerDetailsService customCustomerDetailsService;
+
+    private User mockUser;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        customCustomerDetailsService = new CustomCustomerDetailsService(userRepo,
+                new CoalescingUserLookups(userRepo, new SimpleMeterRegistry(), true), unknownIdentifiers, userCacheInvalidator);
+        mockUser = new User();
+        mockUser.setId(1L);
+        mockUser.setUsername("johndoe");
+        mockUser.setEmail("johndoe@example.com");
+        mockUser.setPhone("1234567890");
+        mockUser.setPassword("encodedPassword");
+        mockUser.setRoles(new HashSet<>(Set.of(RoleName.ADMIN)));
+    }
+
+    @Test
+    void testLoadUserByUsername_Email() {
+        when(userRepo.findCandidatesByUsernameOrEmail("johndoe@example.com")).thenReturn(List.of(mockUser));
+
+        UserDetails userDetails = customCustomerDetailsService.loadUserByUsername("johndoe@example.com");
+
+        assertEquals("johndoe", userDetails.getUsername());
+        assertEquals("ROLE_ADMIN", userDetails.getAuthorities().iterator().next().getAuthority());
+        verify(userRepo, never()).findCandidatesByUsernameOrPhone(anyString());
+    }
+
+    @Test
+    void testLoadUserByUsername_Phone() {
+        when(userRepo.findCandidatesByUsernameOrPhone("1234567890")).thenReturn(List.of(mockUser));
+
+        UserDetails userDetails = customCustomerDetailsService.loadUserByUsername("1234567890");
+
+        assertEquals("johndoe", userDetails.getUsername());
+        verify(userRepo, never()).findCandidatesByUsernameOrEmail(anyString());
+    }
+
+    @Test
+    void testLoadUserByUsername_UsernameWinsOverPhone() {
+        User phoneOwner = new User();
+        phoneOwner.setUsername("someoneelse");
+        phoneOwner.setPhone("12345");
+        phoneOwner.setPassword("encodedPassword");
+        mockUser.setUsername("12345");
+        when(userRepo.findCandidatesByUsernameOrPhone("12345")).thenReturn(List.of(phoneOwner, mockUser));
+
+        UserDetails userDetails = customCustomerDetailsService.loadUserByUsername("12345");
+
+        assertEquals("12345", userDetails.getUsername());
+    }
+
+    @Test
+    void testLoadUserByUsername_NotFound() {
+        when(userRepo.findCandidatesByUsernameOrPhone(anyString())).thenReturn(List.of());
+
+        assertThrows(UsernameNotFoundException.class, () -> {
+            customCustomerDetailsService.loadUserByUsername("unknown");
+        });
+    }
+
+    @Test
+    void testUpdatePassword_RehashesOnLoginWithOtherCost() {
+        CalibratedBCryptPasswordEncoder bcrypt = new CalibratedBCryptPasswordEncoder(5);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(encoder);
+        provider.setUserDetailsService(customCustomerDetailsService);
+        provider.setUserDetailsPasswordService(customCustomerDetailsService);
+        mockUser.setPassword(new BCryptPasswordEncoder(4).encode("password1"));
+        when(userRepo.findCandidatesByUsernameOrPhone("johndoe")).thenReturn(List.of(mockUser));
+        when(userRepo.updatePassword(eq("johndoe"), anyString())).thenReturn(1);
+        when(userRepo.findIdByUsername("johndoe")).thenReturn(Optional.of(1L));
+
+        provider.authenticate(new UsernamePasswordAuthenticationToken("johndoe", "password1"));
+
+        verify(userRepo).updatePassword(eq("johndoe"), argThat(hash -> hash.startsWith("{bcrypt}$2a$05$")));
+        verify(userCacheInvalidator).invalidateAfterBulkUpdate(1L);
+    }
+
+    @Test
+    void testUpdatePassword_NothingToInvalidateForVanishedUser() {
+        UserDetails user = customCustomerDetailsService.updatePassword(
+                org.springframework.security.core.userdetails.User.withUsername("gone").password("old").build(), "new");
+
+        assertEquals("new", user.getPassword());
+        verify(userCacheInvalidator, never()).invalidateAfterBulkUpdate(any());
+    }
+
+    @Test
+    void testLoadUserByUsername_UnknownIdentifierIsAnsweredFromCache() {
+        when(userRepo.findCandidatesByUsernameOrPhone("nobody")).thenReturn(List.of());
+
+        assertThrows(UsernameNotFoundException.class, () -> customCustomerDetailsService.loadUserByUsername("nobody"));
+        assertThrows(UsernameNotFoundException.class, () -> customCustomerDetailsService.loadUserByUsername("nobody"));
+
+        verify(userRepo, times(1)).findCandidatesByUsernameOrPhone("nobody");
+        verify(unknownIdentifiers).awaitLookupTime(anyLong());
+    }
+
+    @Test
+    void testLoadUserByUsername_ForgottenIdentifierIsLookedUpAgain() {
+        when(userRepo.findCandidatesByUsernameOrPhone("johndoe")).thenReturn(List.of()).thenReturn(List.of(mockUser));
+        assertThrows(UsernameNotFoundException.class, () -> customCustomerDetailsService.loadUserByUsername("johndoe"));
+
+        unknownIdentifiers.forget("johndoe", "johndoe@example.com", null);
+
+        assertEquals("johndoe", customCustomerDetailsService.loadUserByUsername("johndoe").getUsername());
+    }
+}
@@ -0,0 +1,45 @@
+package com.pulse.api.utils;
+
+import com.pulse.api.dto.UserImportRow;
+import com.pulse.api.enums.Gender;
+import com.pulse.api.enums.RoleName;
+import com.pulse.api.exceptions.InvalidImportException;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCsvParserTest {
+
+    @Test
+    void testParse_MapsColumnsByHeader() {
+        String csv = "Username,email,password,firstName,lastName,gender,roles,bio\n"
+                + "alice,alice@x.com,password1,Alice,Smith,female,ADMIN;NORMAL,\"Likes \"\"quotes\"\", and commas\"\n"
+                + "\n"
+                + "bob,bob@x.com,password2,Bob,Jones,,,\n";
+
+        List<UserImportRow> rows = UserCsvParser.parse(new StringReader(csv), 10);
+
+        assertEquals(2, rows.size());
+        UserImportRow alice = rows.get(0);
+        assertEquals("alice", alice.username());
+        assertEquals(Gender.FEMALE, alice.gender());
+        assertEquals(Set.of(RoleName.ADMIN, RoleName.NORMAL), alice.roles());
+        assertEquals("Likes \"quotes\", and commas", alice.bio());
+        assertNull(alice.phone());
+        assertNull(rows.get(1).gender());
+        assertTrue(rows.get(1).roles().isEmpty());
+    }
+
+    @Test
+    void testParse_RejectsMalformedInput() {
+        assertThrows(InvalidImportException.class, () -> UserCsvParser.parse(new StringReader(""), 10));
+        assertThrows(InvalidImportException.class, () -> UserCsvParser.parse(new StringReader("username,nickname\n"), 10));
+        assertThrows(InvalidImportException.class, () -> UserCsvParser.parse(new StringReader("username,gender\nalice,robot\n"), 10));
+        assertThrows(InvalidImportException.class, () -> UserCsvParser.parse(new StringReader("username,bio\nalice,\"open\n"), 10));
+        assertThrows(InvalidImportException.class, () -> UserCsvParser.parse(new StringReader("username\na\nb\nc\n"), 2));
+    }
+}